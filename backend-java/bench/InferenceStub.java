@@ -0,0 +1,114 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stand-in for a Hugging Face style inference server, for the remote model
+// backend (app.model.backend=remote). POST an image, get back
+// [{"label":"Flooded Scene","score":...},{"label":"Non Flooded","score":...}],
+// the score following the share of water-coloured pixels. Latency and failures
+// are simulated: every request takes the base latency plus jitter, a fraction
+// of them take the slow latency instead (to exercise hedging) and a fraction
+// fail with 503 (to exercise the circuit breaker).
+//
+//   java bench/InferenceStub.java [port] [base-ms] [jitter-ms] [slow-fraction] [slow-ms] [error-fraction]
+//   java bench/InferenceStub.java 8089 40 20 0.05 1500 0.0
+public class InferenceStub {
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long baseMillis = args.length > 1 ? Long.parseLong(args[1]) : 40;
+        long jitterMillis = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        double slowFraction = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        long slowMillis = args.length > 4 ? Long.parseLong(args[4]) : 1500;
+        double errorFraction = args.length > 5 ? Double.parseDouble(args[5]) : 0.0;
+
+        AtomicLong requests = new AtomicLong();
+        AtomicLong slow = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                requests.incrementAndGet();
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "{\"error\":\"POST an image\"}");
+                    return;
+                }
+                byte[] body = exchange.getRequestBody().readAllBytes();
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long delay = baseMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+                if (random.nextDouble() < slowFraction) {
+                    delay = slowMillis;
+                    slow.incrementAndGet();
+                }
+                Thread.sleep(delay);
+
+                if (random.nextDouble() < errorFraction) {
+                    failed.incrementAndGet();
+                    respond(exchange, 503, "{\"error\":\"simulated failure\"}");
+                    return;
+                }
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(body));
+                if (image == null) {
+                    respond(exchange, 400, "{\"error\":\"not an image\"}");
+                    return;
+                }
+                double flooded = Math.min(0.99, Math.max(0.01, 0.05 + 1.5 * waterShare(image)));
+                respond(exchange, 200, String.format(Locale.ROOT,
+                        "[{\"label\":\"Flooded Scene\",\"score\":%.4f},{\"label\":\"Non Flooded\",\"score\":%.4f}]",
+                        flooded, 1.0 - flooded));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        System.out.printf("Inference stub on http://localhost:%d/ (base %d ms + %d ms jitter, %.0f%% at %d ms, %.0f%% errors)%n",
+                port, baseMillis, jitterMillis, slowFraction * 100, slowMillis, errorFraction * 100);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.printf(
+                "%d requests, %d slow, %d failed%n", requests.get(), slow.get(), failed.get())));
+    }
+
+    // Share of sampled pixels where blue clearly dominates red
+    private static double waterShare(BufferedImage image) {
+        int water = 0;
+        int samples = 0;
+        int step = Math.max(1, Math.max(image.getWidth(), image.getHeight()) / 128);
+        for (int y = 0; y < image.getHeight(); y += step) {
+            for (int x = 0; x < image.getWidth(); x += step) {
+                int rgb = image.getRGB(x, y);
+                int red = (rgb >> 16) & 0xFF;
+                int blue = rgb & 0xFF;
+                if (blue > red + 20) {
+                    water++;
+                }
+                samples++;
+            }
+        }
+        return samples == 0 ? 0.0 : (double) water / samples;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop mixed load against a running backend: large and small image
+// detections (CPU bound), detections with coordinates (social media I/O) and
+// health checks, from a fixed number of concurrent clients. Prints throughput
+// and p50/p99 latency per request kind.
+//
+//   java bench/MixedLoad.java http://localhost:5000 64 60 [image files...]
+public class MixedLoad {
+
+    enum Kind {
+        LARGE_IMAGE(15), SMALL_IMAGE(35), SMALL_WITH_LOCATION(30), HEALTH(20);
+
+        final int weight;
+
+        Kind(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:5000";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        String large;
+        String small;
+        if (args.length > 4) {
+            large = Base64.getEncoder().encodeToString(Files.readAllBytes(Path.of(args[3])));
+            small = Base64.getEncoder().encodeToString(Files.readAllBytes(Path.of(args[4])));
+        } else {
+            large = syntheticJpeg(4000, 3000);
+            small = syntheticJpeg(640, 480);
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        List<long[]> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        Thread[] workers = new Thread[clients];
+        List<List<Long>[]> perWorker = new ArrayList<>();
+        for (int w = 0; w < clients; w++) {
+            @SuppressWarnings("unchecked")
+            List<Long>[] samples = new List[Kind.values().length];
+            for (int k = 0; k < samples.length; k++) {
+                samples[k] = new ArrayList<>();
+            }
+            perWorker.add(samples);
+            workers[w] = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    Kind kind = pick();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request(baseUrl, kind, large, small),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    samples[kind.ordinal()].add(System.nanoTime() - start);
+                }
+            });
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long total = 0;
+        System.out.printf("%-22s %8s %10s %10s %10s%n", "kind", "count", "p50 ms", "p99 ms", "max ms");
+        for (Kind kind : Kind.values()) {
+            List<Long> all = new ArrayList<>();
+            for (List<Long>[] samples : perWorker) {
+                all.addAll(samples[kind.ordinal()]);
+            }
+            long[] sorted = all.stream().mapToLong(Long::longValue).sorted().toArray();
+            latencies.add(sorted);
+            total += sorted.length;
+            System.out.printf("%-22s %8d %10.1f %10.1f %10.1f%n", kind, sorted.length,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        }
+        long[] combined = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("throughput %.1f req/s, p99 %.1f ms, errors %d%n", (double) total / seconds,
+                percentile(combined, 0.99), errors.get());
+    }
+
+    private static Kind pick() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (Kind kind : Kind.values()) {
+            roll -= kind.weight;
+            if (roll < 0) {
+                return kind;
+            }
+        }
+        return Kind.HEALTH;
+    }
+
+    private static HttpRequest request(String baseUrl, Kind kind, String large, String small) {
+        if (kind == Kind.HEALTH) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/health")).GET().build();
+        }
+        String image = kind == Kind.LARGE_IMAGE ? large : small;
+        String coordinates = kind == Kind.SMALL_WITH_LOCATION
+                ? ",\"coordinates\":{\"latitude\":13.0827,\"longitude\":80.2707}"
+                : "";
+        String body = "{\"image\":\"" + image + "\"" + coordinates + "}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/flood-detection"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String syntheticJpeg(int width, int height) throws Exception {
+        Random random = new Random(width);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height, new Color(120, 110, 90)));
+        g.fillRect(0, 0, width, height);
+        for (int i = 0; i < 40; i++) {
+            g.setColor(new Color(random.nextInt()));
+            g.fillOval(random.nextInt(width), random.nextInt(height), width / 8, height / 8);
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+}
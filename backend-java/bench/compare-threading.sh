@@ -0,0 +1,39 @@
+#!/bin/bash
+# Runs bench/MixedLoad.java against the packaged backend twice, once on
+# platform request threads and once on virtual threads (needs JDK 21+ for the
+# second run to differ). Result caching and coalescing are switched off so
+# every request does the full work.
+#
+#   ./bench/compare-threading.sh [clients] [seconds]
+set -e
+cd "$(dirname "$0")/.."
+
+CLIENTS=${1:-64}
+SECONDS_PER_RUN=${2:-60}
+PORT=5055
+JAR=$(ls target/flood-detection-backend-*.jar 2>/dev/null | grep -v -- -classes.jar | head -1)
+if [ -z "$JAR" ]; then
+    mvn -q -DskipTests package
+    JAR=$(ls target/flood-detection-backend-*.jar | grep -v -- -classes.jar | head -1)
+fi
+
+for VIRTUAL in false true; do
+    java -jar "$JAR" --server.port=$PORT \
+        --spring.threads.virtual.enabled=$VIRTUAL \
+        --app.cache.enabled=false \
+        --app.coalescing.enabled=false \
+        --app.near-duplicate.enabled=false \
+        --logging.level.com.incois.flooddetection=WARN > "target/bench-virtual-$VIRTUAL.log" 2>&1 &
+    SERVER=$!
+    trap 'kill $SERVER 2>/dev/null' EXIT
+
+    until curl -sf "http://localhost:$PORT/api/health" > /dev/null; do
+        sleep 1
+    done
+
+    echo "== virtual threads: $VIRTUAL =="
+    java bench/MixedLoad.java "http://localhost:$PORT" "$CLIENTS" "$SECONDS_PER_RUN"
+
+    kill $SERVER
+    wait $SERVER 2>/dev/null || true
+done
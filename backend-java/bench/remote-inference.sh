@@ -0,0 +1,41 @@
+#!/bin/bash
+# Runs bench/MixedLoad.java against the packaged backend with the remote model
+# backend pointed at bench/InferenceStub.java, then prints the inference
+# figures from /api/health (hedges, breaker state, fallbacks). Stub arguments
+# after the load arguments, e.g. 5% slow calls and 2% errors:
+#
+#   ./bench/remote-inference.sh [clients] [seconds] [base-ms jitter-ms slow-fraction slow-ms error-fraction]
+#   ./bench/remote-inference.sh 64 60 40 20 0.05 1500 0.02
+set -e
+cd "$(dirname "$0")/.."
+
+CLIENTS=${1:-64}
+SECONDS_PER_RUN=${2:-60}
+shift 2 || true
+PORT=5056
+STUB_PORT=8089
+JAR=$(ls target/flood-detection-backend-*.jar 2>/dev/null | grep -v -- -classes.jar | head -1)
+if [ -z "$JAR" ]; then
+    mvn -q -DskipTests package
+    JAR=$(ls target/flood-detection-backend-*.jar | grep -v -- -classes.jar | head -1)
+fi
+
+java bench/InferenceStub.java $STUB_PORT "$@" > target/bench-stub.log 2>&1 &
+STUB=$!
+java -jar "$JAR" --server.port=$PORT \
+    --app.model.backend=remote \
+    --app.model.remote.url=http://localhost:$STUB_PORT/ \
+    --app.cache.enabled=false \
+    --app.coalescing.enabled=false \
+    --app.near-duplicate.enabled=false \
+    --logging.level.com.incois.flooddetection=WARN > target/bench-remote.log 2>&1 &
+SERVER=$!
+trap 'kill $SERVER $STUB 2>/dev/null' EXIT
+
+until curl -sf "http://localhost:$PORT/api/health" > /dev/null; do
+    sleep 1
+done
+
+java bench/MixedLoad.java "http://localhost:$PORT" "$CLIENTS" "$SECONDS_PER_RUN"
+curl -s "http://localhost:$PORT/api/health"
+echo
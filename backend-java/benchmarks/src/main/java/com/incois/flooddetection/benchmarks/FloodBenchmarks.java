@@ -0,0 +1,23 @@
+package com.incois.flooddetection.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// JMH entry point that always attaches the GC profiler, so every result
+// carries allocation rates (gc.alloc.rate.norm = bytes per operation) next to
+// the timings. Takes the usual JMH arguments:
+//
+//   java -jar target/benchmarks.jar FeatureBenchmark -p size=4000x3000 -rf json -rff after.json
+public class FloodBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
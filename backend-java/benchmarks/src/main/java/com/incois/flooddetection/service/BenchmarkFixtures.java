@@ -0,0 +1,180 @@
+package com.incois.flooddetection.service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.util.Random;
+
+// Synthetic scenes and service instances configured like application.properties.
+// Lives in the service package so the benchmarks reach its package-private API.
+public final class BenchmarkFixtures {
+
+    // Fixed seed: every run and every fork sees the same pixels
+    private static final long SEED = 20240917L;
+
+    private BenchmarkFixtures() {
+    }
+
+    // "4000x3000" -> {4000, 3000}
+    public static int[] dimensions(String size) {
+        String[] parts = size.split("x");
+        return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+    }
+
+    // TYPE_3BYTE_BGR, the layout JPEG and 8-bit RGB PNG uploads decode to
+    public static BufferedImage scene(String scene, String size) {
+        int[] dimensions = dimensions(size);
+        int width = dimensions[0];
+        int height = dimensions[1];
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] bgr = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Random random = new Random(SEED);
+        switch (scene) {
+            case "water":
+                paintWater(bgr, width, height, random);
+                break;
+            case "urban":
+                paintUrban(bgr, width, height, random);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scene " + scene);
+        }
+        return image;
+    }
+
+    public static byte[] encode(BufferedImage image, String format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            if (!ImageIO.write(image, format, out)) {
+                throw new IllegalArgumentException("No writer for " + format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Production limits, except that no upload is too large to benchmark
+    public static ImageDecoder decoder() {
+        ImageDecoder decoder = new ImageDecoder();
+        set(decoder, "targetPixels", 2_000_000L);
+        set(decoder, "maxUploadBytes", Long.MAX_VALUE);
+        set(decoder, "maxPixels", 200_000_000L);
+        set(decoder, "maxDimension", 20_000);
+        set(decoder, "maxDecodedBytes", 33_554_432L);
+        return decoder;
+    }
+
+    public static ImageFeatureExtractor extractor() {
+        ImageFeatureExtractor extractor = new ImageFeatureExtractor();
+        set(extractor, "parallelMinPixels", 1_000_000L);
+        set(extractor, "maxThreads", 4);
+        set(extractor, "sampleBudget", 250_000L);
+        extractor.init();
+        return extractor;
+    }
+
+    public static void shutdown(ImageFeatureExtractor extractor) {
+        extractor.shutdown();
+    }
+
+    // Sky over a lake: blue gradient, then rippling teal water with glints
+    private static void paintWater(byte[] bgr, int width, int height, Random random) {
+        int horizon = height * 3 / 10;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red;
+                int green;
+                int blue;
+                if (y < horizon) {
+                    double t = (double) y / horizon;
+                    red = (int) (120 + 60 * t);
+                    green = (int) (170 + 40 * t);
+                    blue = 235;
+                } else {
+                    double ripple = Math.sin(x * 0.05 + y * 0.21) * Math.sin(y * 0.13);
+                    red = (int) (30 + 15 * ripple);
+                    green = (int) (95 + 25 * ripple);
+                    blue = (int) (150 + 35 * ripple);
+                    if (ripple > 0.92) {
+                        red += 90;
+                        green += 80;
+                        blue += 60;
+                    }
+                }
+                int noise = random.nextInt(17) - 8;
+                put(bgr, (y * width + x) * 3, red + noise, green + noise, blue + noise);
+            }
+        }
+    }
+
+    // Street scene: hazy sky, blocks of buildings with window grids, asphalt.
+    // Warm tones throughout, since the heuristic reads neutral grey as water.
+    private static void paintUrban(byte[] bgr, int width, int height, Random random) {
+        int skyline = height / 4;
+        int street = height * 4 / 5;
+        int blockWidth = Math.max(16, width / 12);
+        int windowSize = Math.max(4, width / 160);
+
+        int[] tops = new int[width / blockWidth + 1];
+        int[] tones = new int[tops.length];
+        for (int block = 0; block < tops.length; block++) {
+            tops[block] = skyline + random.nextInt(Math.max(1, (street - skyline) / 2));
+            tones[block] = 90 + random.nextInt(90);
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int block = x / blockWidth;
+                int red;
+                int green;
+                int blue;
+                if (y >= street) {
+                    boolean lane = (y - street) % (height / 10 + 1) < windowSize && (x / (windowSize * 6)) % 2 == 0;
+                    red = lane ? 235 : 95;
+                    green = lane ? 220 : 80;
+                    blue = lane ? 160 : 65;
+                } else if (y < tops[block]) {
+                    red = 215;
+                    green = 200;
+                    blue = 175;
+                } else {
+                    int tone = tones[block];
+                    boolean window = (x % (windowSize * 3)) < windowSize * 2 && (y % (windowSize * 3)) < windowSize * 2
+                            && x % blockWidth > windowSize && x % blockWidth < blockWidth - windowSize;
+                    boolean lit = window && ((x / (windowSize * 3) + y / (windowSize * 3)) % 3 == 0);
+                    red = window ? (lit ? 240 : 60) : tone + 35;
+                    green = window ? (lit ? 215 : 45) : tone + 10;
+                    blue = window ? (lit ? 150 : 35) : tone - 25;
+                }
+                int noise = random.nextInt(13) - 6;
+                put(bgr, (y * width + x) * 3, red + noise, green + noise, blue + noise);
+            }
+        }
+    }
+
+    private static void put(byte[] bgr, int offset, int red, int green, int blue) {
+        bgr[offset] = (byte) clamp(blue);
+        bgr[offset + 1] = (byte) clamp(green);
+        bgr[offset + 2] = (byte) clamp(red);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    // Stands in for Spring's @Value injection
+    private static void set(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.incois.flooddetection.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// processImage: header admission plus the subsampled decode of an upload
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx8g" })
+public class DecodeBenchmark {
+
+    // 0.3, 1.9, 12 and 48 MP
+    @Param({ "640x480", "1600x1200", "4000x3000", "8000x6000" })
+    public String size;
+
+    @Param({ "jpeg", "png" })
+    public String format;
+
+    @Param({ "water", "urban" })
+    public String scene;
+
+    private ImageDecoder decoder;
+    private byte[] upload;
+
+    @Setup
+    public void setUp() {
+        decoder = BenchmarkFixtures.decoder();
+        upload = BenchmarkFixtures.encode(BenchmarkFixtures.scene(scene, size), format);
+    }
+
+    @Benchmark
+    public DecodedImage decode() throws IOException {
+        return decoder.decode(upload);
+    }
+}
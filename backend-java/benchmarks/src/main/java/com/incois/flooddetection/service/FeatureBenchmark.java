@@ -0,0 +1,85 @@
+package com.incois.flooddetection.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// performComprehensiveImageAnalysis and its stages. The per-feature methods
+// it once called are now one fused pass, so the stages are what can be
+// timed apart: unpack (pixels and luma), analyse (gradients, summed-area
+// tables and every feature), and the perceptual hash for near-duplicates.
+// Images are analysed at full size; uploads are subsampled to about 2 MP
+// first (DecodeBenchmark), so the larger sizes show the cost of raising
+// app.image.decode.target-pixels.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx8g" })
+public class FeatureBenchmark {
+
+    @Param({ "640x480", "1600x1200", "4000x3000", "8000x6000" })
+    public String size;
+
+    @Param({ "water", "urban" })
+    public String scene;
+
+    // Reuse plane buffers between images, as the image pool threads do
+    @Param({ "true", "false" })
+    public boolean scratch;
+
+    private ImageFeatureExtractor extractor;
+    private BufferedImage image;
+    private ImagePlanes planes;
+
+    @Setup
+    public void setUp() {
+        if (scratch) {
+            PlaneScratch.install();
+        }
+        extractor = BenchmarkFixtures.extractor();
+        image = BenchmarkFixtures.scene(scene, size);
+        planes = extractor.unpack(image);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.shutdown(extractor);
+    }
+
+    @Benchmark
+    public ImageAnalysisResult extract() {
+        return extractor.extract(image);
+    }
+
+    @Benchmark
+    public ImagePlanes unpack() {
+        return extractor.unpack(image);
+    }
+
+    // Re-derives every plane from the unpacked pixels, so repeated calls do
+    // the same work
+    @Benchmark
+    public ImageAnalysisResult analyse() {
+        return extractor.analyse(planes);
+    }
+
+    // The hash with the cell spread and mean colour near-duplicate lookups check
+    @Benchmark
+    public PerceptualHash.Fingerprint perceptualHash() {
+        return PerceptualHash.fingerprint(planes);
+    }
+}
@@ -0,0 +1,59 @@
+package com.incois.flooddetection.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The cheap per-request steps after analysis: the heuristic's
+// calculateAdvancedFloodProbability (through predict) and the social media
+// sentiment lookup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({ "water", "urban" })
+    public String scene;
+
+    private final HeuristicFloodModel heuristic = new HeuristicFloodModel();
+    private final SocialMediaAnalysisService socialMedia = new SocialMediaAnalysisService();
+    private ImageAnalysisResult analysis;
+
+    @Setup
+    public void setUp() {
+        ImageFeatureExtractor extractor = BenchmarkFixtures.extractor();
+        analysis = extractor.extract(BenchmarkFixtures.scene(scene, "1600x1200"));
+        BenchmarkFixtures.shutdown(extractor);
+    }
+
+    @Benchmark
+    public Map<String, Double> floodProbability() {
+        return heuristic.predict(null, analysis);
+    }
+
+    // A city with its own social media profile
+    @Benchmark
+    public SocialMediaAnalysisService.SocialMediaAnalysisResult socialMediaKnownCity() {
+        return socialMedia.analyzeSocialMediaSentiment(13.0827, 80.2707, "Chennai");
+    }
+
+    // Falls through to coordinate matching and the default profile
+    @Benchmark
+    public SocialMediaAnalysisService.SocialMediaAnalysisResult socialMediaCoordinates() {
+        return socialMedia.analyzeSocialMediaSentiment(15.2993, 74.1240, "15.2993,74.1240");
+    }
+}
@@ -0,0 +1,106 @@
+package com.incois.flooddetection.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// The images requests are built from, each encoded once up front so the
+// generator spends no time on it during a run. Either every JPEG and PNG in a
+// directory or, by default, a synthetic mix of phone-sized and small photos.
+class ImageCorpus {
+
+    private final List<byte[]> images;
+
+    private ImageCorpus(List<byte[]> images) {
+        if (images.isEmpty()) {
+            throw new IllegalArgumentException("The image corpus is empty");
+        }
+        this.images = images;
+    }
+
+    static ImageCorpus load(Path directory) throws IOException {
+        if (directory == null) {
+            return synthetic();
+        }
+        List<byte[]> images = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png")) {
+                    images.add(Files.readAllBytes(file));
+                }
+            }
+        }
+        return new ImageCorpus(images);
+    }
+
+    // Distinct pixels per image, so content caches only help if enabled on purpose
+    private static ImageCorpus synthetic() throws IOException {
+        Random random = new Random(42);
+        int[][] sizes = { { 4000, 3000 }, { 1920, 1080 }, { 1280, 960 }, { 640, 480 } };
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int[] size = sizes[i % sizes.length];
+            images.add(syntheticJpeg(size[0], size[1], random));
+        }
+        return new ImageCorpus(images);
+    }
+
+    private static byte[] syntheticJpeg(int width, int height, Random random) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Color top = new Color(random.nextInt(256), random.nextInt(256), 200 + random.nextInt(56));
+        Color bottom = new Color(random.nextInt(128), 60 + random.nextInt(128), random.nextInt(256));
+        graphics.setPaint(new GradientPaint(0, 0, top, 0, height, bottom));
+        graphics.fillRect(0, 0, width, height);
+        for (int shape = 0; shape < 60; shape++) {
+            graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            graphics.fillRect(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(width / 6),
+                    1 + random.nextInt(height / 6));
+        }
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    int size() {
+        return images.size();
+    }
+
+    byte[] raw(int index) {
+        return images.get(index % images.size());
+    }
+
+    // Body for POST /api/flood-detection, optionally with coordinates near Chennai
+    byte[] json(int index, boolean withCoordinates) {
+        StringBuilder body = new StringBuilder("{\"image\":\"data:image/jpeg;base64,")
+                .append(Base64.getEncoder().encodeToString(raw(index)))
+                .append('"');
+        if (withCoordinates) {
+            body.append(",\"coordinates\":{\"latitude\":13.0827,\"longitude\":80.2707}");
+        }
+        return body.append('}').toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    long totalBytes() {
+        long total = 0;
+        for (byte[] image : images) {
+            total += image.length;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,112 @@
+package com.incois.flooddetection.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Command line options; see LoadTest for the list
+class LoadConfig {
+
+    String url;
+    Path jar;
+    int port = 5057;
+    final List<String> jvmArgs = new ArrayList<>();
+    final List<String> serverArgs = new ArrayList<>();
+    Long pid;
+
+    String endpoint = "json";
+    Path images;
+    double coordinatesFraction = 0.5;
+
+    // Open loop: requests per second per stage. Empty: one closed-loop stage.
+    final List<Double> rates = new ArrayList<>();
+    int concurrency = 64;
+    int durationSeconds = 60;
+    int warmupSeconds = 15;
+    int timeoutMillis = 30_000;
+    double sloP99Millis = 2_000;
+
+    Path report = Path.of("loadtest-report.json");
+    Path compare;
+
+    static LoadConfig parse(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--help")) {
+                throw new IllegalArgumentException("");
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--url":
+                    config.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "--jar":
+                    config.jar = Path.of(value);
+                    break;
+                case "--port":
+                    config.port = Integer.parseInt(value);
+                    break;
+                case "--jvm-arg":
+                    config.jvmArgs.add(value);
+                    break;
+                case "--server-arg":
+                    config.serverArgs.add(value);
+                    break;
+                case "--pid":
+                    config.pid = Long.parseLong(value);
+                    break;
+                case "--endpoint":
+                    if (!value.equals("json") && !value.equals("upload")) {
+                        throw new IllegalArgumentException("--endpoint is json or upload");
+                    }
+                    config.endpoint = value;
+                    break;
+                case "--images":
+                    config.images = Path.of(value);
+                    break;
+                case "--coordinates":
+                    config.coordinatesFraction = Double.parseDouble(value);
+                    break;
+                case "--rates":
+                    for (String rate : value.split(",")) {
+                        config.rates.add(Double.parseDouble(rate.trim()));
+                    }
+                    break;
+                case "--concurrency":
+                    config.concurrency = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    config.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    config.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "--timeout-ms":
+                    config.timeoutMillis = Integer.parseInt(value);
+                    break;
+                case "--slo-p99-ms":
+                    config.sloP99Millis = Double.parseDouble(value);
+                    break;
+                case "--report":
+                    config.report = Path.of(value);
+                    break;
+                case "--compare":
+                    config.compare = Path.of(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (config.url == null && config.jar == null) {
+            throw new IllegalArgumentException("Give --jar to start the backend or --url to use a running one");
+        }
+        if (config.url == null) {
+            config.url = "http://localhost:" + config.port;
+        }
+        return config;
+    }
+}
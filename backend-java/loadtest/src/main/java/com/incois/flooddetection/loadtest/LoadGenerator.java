@@ -0,0 +1,247 @@
+package com.incois.flooddetection.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives the detection endpoint in one of two shapes:
+//  - open loop: requests leave on a fixed schedule whatever the server does, and
+//    latency is measured from the scheduled send time, so queueing in front of a
+//    slow server is counted instead of hidden (no coordinated omission)
+//  - closed loop: a fixed number of clients, each sending its next request as
+//    soon as the previous one returns
+class LoadGenerator implements AutoCloseable {
+
+    private static final String BOUNDARY = "loadtest-7b1f0c9e";
+
+    // 1 us to 10 min at 3 significant digits
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LoadConfig config;
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final URI uri;
+    private final String contentType;
+    private final List<byte[]> bodies = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    LoadGenerator(LoadConfig config, ImageCorpus corpus) {
+        this.config = config;
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "loadtest-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+
+        boolean upload = config.endpoint.equals("upload");
+        this.uri = URI.create(config.url + (upload ? "/api/flood-detection/upload" : "/api/flood-detection"));
+        this.contentType = upload ? "multipart/form-data; boundary=" + BOUNDARY : "application/json";
+
+        // Bodies are built once; every image appears with and without
+        // coordinates in proportion to --coordinates
+        int withCoordinates = (int) Math.round(corpus.size() * 2 * config.coordinatesFraction);
+        for (int i = 0; i < corpus.size() * 2; i++) {
+            boolean coordinates = i < withCoordinates;
+            int image = i % corpus.size();
+            bodies.add(upload ? multipart(corpus.raw(image), coordinates) : corpus.json(image, coordinates));
+        }
+    }
+
+    // Runs one stage; rate <= 0 means closed loop with config.concurrency clients
+    StageResult run(String name, double rate, int seconds) throws InterruptedException {
+        StageResult result = new StageResult(name, rate, config.concurrency, seconds);
+        long start = System.nanoTime();
+        if (rate > 0) {
+            runOpenLoop(result, rate, start, start + TimeUnit.SECONDS.toNanos(seconds));
+        } else {
+            runClosedLoop(result, start, start + TimeUnit.SECONDS.toNanos(seconds));
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        result.latency = result.recorder.getIntervalHistogram();
+        return result;
+    }
+
+    private void runOpenLoop(StageResult result, double rate, long start, long end) throws InterruptedException {
+        // Caps the connections a stalled server can pile up; a send that finds
+        // no permit is counted as dropped rather than delayed
+        Semaphore inFlight = new Semaphore(config.concurrency);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                result.dropped.increment();
+                continue;
+            }
+            client.sendAsync(request(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        result.record(intended, response, error);
+                        inFlight.release();
+                    });
+        }
+        // Drain, so the next stage starts against an idle server
+        inFlight.tryAcquire(config.concurrency, config.timeoutMillis + 5_000L, TimeUnit.MILLISECONDS);
+    }
+
+    private void runClosedLoop(StageResult result, long start, long end) throws InterruptedException {
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < config.concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    long sent = System.nanoTime();
+                    try {
+                        result.record(sent, client.send(request(), HttpResponse.BodyHandlers.discarding()), null);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        result.record(sent, null, e);
+                    }
+                }
+            }, "loadtest-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            clients.add(thread);
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+    }
+
+    private HttpRequest request() {
+        byte[] body = bodies.get(Math.floorMod(next.getAndIncrement(), bodies.size()));
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(config.timeoutMillis))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private static byte[] multipart(byte[] image, boolean withCoordinates) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.length + 512);
+        StringBuilder head = new StringBuilder();
+        if (withCoordinates) {
+            head.append(part("latitude")).append("13.0827\r\n");
+            head.append(part("longitude")).append("80.2707\r\n");
+        }
+        head.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"image\"; filename=\"image.jpg\"\r\n")
+                .append("Content-Type: image/jpeg\r\n\r\n");
+        out.writeBytes(head.toString().getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(image);
+        out.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static String part(String name) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n";
+    }
+
+    @Override
+    public void close() {
+        clientExecutor.shutdownNow();
+    }
+
+    static class StageResult {
+        final String name;
+        final double targetRate;
+        final int concurrency;
+        final int seconds;
+
+        final Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        // "503", "timeout", "io", ...
+        final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+        Histogram latency;
+        long elapsedNanos;
+        ServerStats.Delta server;
+
+        StageResult(String name, double targetRate, int concurrency, int seconds) {
+            this.name = name;
+            this.targetRate = targetRate;
+            this.concurrency = concurrency;
+            this.seconds = seconds;
+        }
+
+        void record(long startNanos, HttpResponse<?> response, Throwable error) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            recorder.recordValue(Math.min(Math.max(1, micros), MAX_LATENCY_MICROS));
+            if (error != null) {
+                errors.computeIfAbsent(classify(error), k -> new AtomicLong()).incrementAndGet();
+            } else if (response.statusCode() == 200) {
+                ok.increment();
+            } else {
+                errors.computeIfAbsent(String.valueOf(response.statusCode()), k -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        private static String classify(Throwable error) {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            return cause instanceof HttpTimeoutException ? "timeout" : "io";
+        }
+
+        long completed() {
+            return latency.getTotalCount();
+        }
+
+        long failed() {
+            long failed = 0;
+            for (AtomicLong count : errors.values()) {
+                failed += count.get();
+            }
+            return failed;
+        }
+
+        Map<String, Long> errorCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            errors.forEach((key, count) -> counts.put(key, count.get()));
+            return counts;
+        }
+
+        double throughput() {
+            return ok.sum() / (elapsedNanos / 1e9);
+        }
+
+        // Failed and dropped requests over everything that was attempted
+        double errorRate() {
+            long attempted = completed() + dropped.sum();
+            return attempted == 0 ? 0.0 : (double) (failed() + dropped.sum()) / attempted;
+        }
+
+        double percentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
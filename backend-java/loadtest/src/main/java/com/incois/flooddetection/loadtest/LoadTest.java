@@ -0,0 +1,119 @@
+package com.incois.flooddetection.loadtest;
+
+import java.util.Locale;
+
+// Load test for POST /api/flood-detection. Starts the packaged backend (or
+// uses a running one), warms it up, then runs one stage per arrival rate and
+// reports throughput, latency percentiles, errors and the server's heap, GC
+// and CPU figures per stage.
+//
+//   java -jar loadtest/target/loadtest.jar --jar target/flood-detection-backend-1.0.0.jar \
+//       --rates 2,4,8,16 --duration 60 --report run.json [--compare baseline.json]
+public final class LoadTest {
+
+    private static final String USAGE = String.join("\n",
+            "Options:",
+            "  --jar PATH              start the backend from this JAR for the run",
+            "  --port N                port of the started backend (5057)",
+            "  --jvm-arg ARG           JVM option for the started backend, repeatable",
+            "  --server-arg ARG        Spring option for the started backend, repeatable",
+            "                          (default: cache, coalescing and near-duplicate reuse off)",
+            "  --url URL               use a running backend instead",
+            "  --pid PID               its process id, for heap and GC figures",
+            "  --endpoint json|upload  JSON body with base64 image, or multipart upload (json)",
+            "  --images DIR            JPEG and PNG files to send (synthetic photos)",
+            "  --coordinates F         share of requests with coordinates (0.5)",
+            "  --rates R1,R2,...       open loop, one stage per rate in requests/s",
+            "  --concurrency N         in-flight cap (open loop) or clients (closed loop) (64)",
+            "  --duration S            seconds per stage (60)",
+            "  --warmup S              seconds of unreported load first (15)",
+            "  --timeout-ms N          request timeout (30000)",
+            "  --slo-p99-ms N          p99 objective used to find the highest passing rate (2000)",
+            "  --report PATH           JSON report (loadtest-report.json)",
+            "  --compare PATH          JSON report of an earlier run to compare with");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            if (!e.getMessage().isEmpty()) {
+                System.err.println(e.getMessage());
+            }
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ImageCorpus corpus = ImageCorpus.load(config.images);
+        System.out.printf(Locale.ROOT, "%d images, %.1f MB%n", corpus.size(), corpus.totalBytes() / 1048576.0);
+
+        ServerProcess server = null;
+        ServerStats stats = null;
+        try {
+            Long pid = config.pid;
+            if (config.jar != null) {
+                System.out.println("Starting " + config.jar + " on port " + config.port);
+                server = ServerProcess.start(config);
+                pid = server.pid();
+            }
+            if (pid != null) {
+                try {
+                    stats = ServerStats.attach(pid);
+                } catch (Exception e) {
+                    System.err.println("No heap and GC figures, cannot attach to " + pid + ": " + e);
+                }
+            }
+
+            Report report = new Report(config);
+            try (LoadGenerator generator = new LoadGenerator(config, corpus)) {
+                if (config.warmupSeconds > 0) {
+                    double warmupRate = config.rates.isEmpty() ? 0 : config.rates.get(0);
+                    System.out.println("Warming up for " + config.warmupSeconds + " s");
+                    generator.run("warmup", warmupRate, config.warmupSeconds);
+                }
+                if (config.rates.isEmpty()) {
+                    report.add(runStage(generator, stats, "closed-" + config.concurrency, 0, config));
+                } else {
+                    for (double rate : config.rates) {
+                        String name = String.format(Locale.ROOT, "rate-%s", trim(rate));
+                        report.add(runStage(generator, stats, name, rate, config));
+                    }
+                }
+            }
+
+            System.out.println();
+            report.print(System.out);
+            report.write(config.report);
+            System.out.println("Report written to " + config.report.toAbsolutePath());
+            if (config.compare != null) {
+                report.compare(config.compare, System.out);
+            }
+        } finally {
+            if (stats != null) {
+                stats.close();
+            }
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static LoadGenerator.StageResult runStage(LoadGenerator generator, ServerStats stats, String name,
+                                                      double rate, LoadConfig config) throws InterruptedException {
+        System.out.println("Running " + name + " for " + config.durationSeconds + " s");
+        ServerStats.Snapshot before = stats == null ? null : stats.snapshot();
+        LoadGenerator.StageResult result = generator.run(name, rate, config.durationSeconds);
+        if (stats != null) {
+            result.server = stats.snapshot().since(before);
+        }
+        return result;
+    }
+
+    private static String trim(double rate) {
+        return rate == Math.rint(rate) ? String.valueOf((long) rate) : String.valueOf(rate);
+    }
+}
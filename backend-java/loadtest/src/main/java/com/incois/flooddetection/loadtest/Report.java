@@ -0,0 +1,183 @@
+package com.incois.flooddetection.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// The figures of a run as a text table and as JSON. The JSON of an earlier run
+// can be passed back with --compare to print the change per stage.
+class Report {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final String[] COMPARED = { "throughput", "p50_ms", "p99_ms", "p999_ms", "error_rate", "gc_time_share" };
+
+    private final LoadConfig config;
+    private final List<LoadGenerator.StageResult> stages = new ArrayList<>();
+
+    Report(LoadConfig config) {
+        this.config = config;
+    }
+
+    void add(LoadGenerator.StageResult stage) {
+        stages.add(stage);
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%-14s %9s %9s %8s %9s %9s %9s %9s %9s %8s %8s %7s%n",
+                "stage", "requests", "ok/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms",
+                "heap MB", "gc %", "cpu %", "slo");
+        for (LoadGenerator.StageResult stage : stages) {
+            ServerStats.Delta server = stage.server;
+            out.printf(Locale.ROOT, "%-14s %9d %9.1f %7.2f%% %9.1f %9.1f %9.1f %9.1f %9s %8s %8s %7s%n",
+                    stage.name,
+                    stage.completed() + stage.dropped.sum(),
+                    stage.throughput(),
+                    stage.errorRate() * 100,
+                    stage.percentileMillis(50),
+                    stage.percentileMillis(99),
+                    stage.percentileMillis(99.9),
+                    stage.latency.getMaxValue() / 1000.0,
+                    server == null ? "-" : String.format(Locale.ROOT, "%.0f", server.heapPeakMb),
+                    server == null ? "-" : String.format(Locale.ROOT, "%.1f", server.gcTimeShare * 100),
+                    server == null ? "-" : String.format(Locale.ROOT, "%.0f", server.cpu * 100),
+                    withinSlo(stage) ? "pass" : "FAIL");
+            if (!stage.errors.isEmpty() || stage.dropped.sum() > 0) {
+                out.printf("%14s errors %s, dropped %d%n", "", stage.errorCounts(), stage.dropped.sum());
+            }
+        }
+        Double capacity = capacity();
+        if (capacity != null) {
+            out.printf(Locale.ROOT, "Highest rate within p99 <= %.0f ms and < 1%% errors: %.1f req/s%n",
+                    config.sloP99Millis, capacity);
+        }
+    }
+
+    void write(Path path) throws IOException {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("generated_at", Instant.now().toString());
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("url", config.url);
+        settings.put("endpoint", config.endpoint);
+        settings.put("images", config.images == null ? "synthetic" : config.images.toString());
+        settings.put("coordinates_fraction", config.coordinatesFraction);
+        settings.put("duration_s", config.durationSeconds);
+        settings.put("warmup_s", config.warmupSeconds);
+        settings.put("jvm_args", config.jvmArgs);
+        settings.put("server_args", config.serverArgs);
+        settings.put("slo_p99_ms", config.sloP99Millis);
+        root.put("config", settings);
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (LoadGenerator.StageResult stage : stages) {
+            entries.add(toJson(stage));
+        }
+        root.put("stages", entries);
+        root.put("max_rate_within_slo", capacity());
+        MAPPER.writeValue(path.toFile(), root);
+    }
+
+    // Change against a baseline report, stage by stage, matched by name
+    void compare(Path baseline, PrintStream out) throws IOException {
+        JsonNode before = MAPPER.readTree(baseline.toFile());
+        Map<String, JsonNode> previous = new LinkedHashMap<>();
+        for (JsonNode stage : before.path("stages")) {
+            previous.put(stage.path("name").asText(), stage);
+        }
+        out.printf("%nAgainst %s (%s)%n", baseline, before.path("generated_at").asText());
+        out.printf(Locale.ROOT, "%-14s", "stage");
+        for (String metric : COMPARED) {
+            out.printf(Locale.ROOT, " %14s", metric);
+        }
+        out.println();
+        for (LoadGenerator.StageResult stage : stages) {
+            JsonNode old = previous.get(stage.name);
+            if (old == null) {
+                continue;
+            }
+            Map<String, Object> current = toJson(stage);
+            out.printf(Locale.ROOT, "%-14s", stage.name);
+            for (String metric : COMPARED) {
+                out.printf(Locale.ROOT, " %14s", change(old.path(metric), current.get(metric)));
+            }
+            out.println();
+        }
+    }
+
+    private static String change(JsonNode before, Object after) {
+        if (!before.isNumber() || !(after instanceof Number)) {
+            return "-";
+        }
+        double old = before.asDouble();
+        double now = ((Number) after).doubleValue();
+        if (old == 0) {
+            return now == 0 ? "0%" : String.format(Locale.ROOT, "+%.3g", now);
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (now - old) / old * 100);
+    }
+
+    private Map<String, Object> toJson(LoadGenerator.StageResult stage) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("name", stage.name);
+        json.put("mode", stage.targetRate > 0 ? "open" : "closed");
+        json.put("target_rate", stage.targetRate > 0 ? stage.targetRate : null);
+        json.put("concurrency", stage.concurrency);
+        json.put("duration_s", stage.elapsedNanos / 1e9);
+        json.put("completed", stage.completed());
+        json.put("ok", stage.ok.sum());
+        json.put("dropped", stage.dropped.sum());
+        json.put("errors", stage.errorCounts());
+        json.put("throughput", stage.throughput());
+        json.put("error_rate", stage.errorRate());
+        json.put("mean_ms", stage.latency.getMean() / 1000.0);
+        json.put("p50_ms", stage.percentileMillis(50));
+        json.put("p90_ms", stage.percentileMillis(90));
+        json.put("p99_ms", stage.percentileMillis(99));
+        json.put("p999_ms", stage.percentileMillis(99.9));
+        json.put("max_ms", stage.latency.getMaxValue() / 1000.0);
+        json.put("within_slo", withinSlo(stage));
+        ServerStats.Delta server = stage.server;
+        if (server != null) {
+            json.put("heap_used_mb", server.heapUsedMb);
+            json.put("heap_peak_mb", server.heapPeakMb);
+            json.put("heap_max_mb", server.heapMaxMb);
+            json.put("gc_time_share", server.gcTimeShare);
+            json.put("gc_counts", server.gcCounts);
+            json.put("gc_ms", server.gcMillis);
+            json.put("cpu", server.cpu);
+        }
+        return json;
+    }
+
+    private boolean withinSlo(LoadGenerator.StageResult stage) {
+        return stage.completed() > 0
+                && stage.percentileMillis(99) <= config.sloP99Millis
+                && stage.errorRate() < 0.01;
+    }
+
+    // Highest open-loop rate that met the objective, stopping at the first stage
+    // that missed it (--rates is given in rising order)
+    private Double capacity() {
+        Double best = null;
+        for (LoadGenerator.StageResult stage : stages) {
+            if (stage.targetRate <= 0) {
+                continue;
+            }
+            if (!withinSlo(stage)) {
+                break;
+            }
+            best = stage.targetRate;
+        }
+        return best;
+    }
+}
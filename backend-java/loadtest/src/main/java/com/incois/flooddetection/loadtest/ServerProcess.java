@@ -0,0 +1,100 @@
+package com.incois.flooddetection.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The backend started from its packaged JAR for the length of a run. Unless
+// --server-arg says otherwise, the response cache, request coalescing and
+// near-duplicate reuse are off so every request does the full work.
+class ServerProcess implements AutoCloseable {
+
+    private static final List<String> DEFAULT_SERVER_ARGS = List.of(
+            "--app.cache.enabled=false",
+            "--app.coalescing.enabled=false",
+            "--app.near-duplicate.enabled=false",
+            "--logging.level.com.incois.flooddetection=WARN");
+
+    private static final long STARTUP_TIMEOUT_MILLIS = 120_000;
+
+    private final Process process;
+    private final Path log;
+
+    private ServerProcess(Process process, Path log) {
+        this.process = process;
+        this.log = log;
+    }
+
+    static ServerProcess start(LoadConfig config) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(config.jvmArgs);
+        command.add("-jar");
+        command.add(config.jar.toString());
+        command.add("--server.port=" + config.port);
+        command.addAll(config.serverArgs.isEmpty() ? DEFAULT_SERVER_ARGS : config.serverArgs);
+
+        Path log = Path.of("target", "loadtest-server.log").toAbsolutePath();
+        Files.createDirectories(log.getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        ServerProcess server = new ServerProcess(process, log);
+        try {
+            server.awaitHealthy(config.url);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    private void awaitHealthy(String url) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(url + "/api/health"))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Backend exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException notYet) {
+                // Still starting
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Backend not healthy after " + STARTUP_TIMEOUT_MILLIS + " ms, see " + log);
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(15, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.incois.flooddetection.loadtest;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Heap, GC and CPU figures of the server JVM, read over JMX. The local
+// management agent is started through the attach API, so the server needs no
+// JMX flags on its command line.
+class ServerStats implements AutoCloseable {
+
+    private final JMXConnector connector;
+    private final MemoryMXBean memory;
+    private final List<GarbageCollectorMXBean> collectors = new ArrayList<>();
+    private final OperatingSystemMXBean os;
+    private final ScheduledExecutorService sampler;
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    private ServerStats(JMXConnector connector) throws IOException {
+        this.connector = connector;
+        MBeanServerConnection server = connector.getMBeanServerConnection();
+        this.memory = ManagementFactory.newPlatformMXBeanProxy(server,
+                ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+        this.os = ManagementFactory.newPlatformMXBeanProxy(server,
+                ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME, OperatingSystemMXBean.class);
+        try {
+            for (ObjectName name : server.queryNames(
+                    new ObjectName(ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*"), null)) {
+                collectors.add(ManagementFactory.newPlatformMXBeanProxy(server,
+                        name.getCanonicalName(), GarbageCollectorMXBean.class));
+            }
+        } catch (javax.management.MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Heap used is sampled between snapshots to catch the peak of a stage
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "loadtest-jmx");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            try {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            } catch (RuntimeException ignored) {
+                // Server going away; the next snapshot reports it
+            }
+        }, 0, 250, TimeUnit.MILLISECONDS);
+    }
+
+    static ServerStats attach(long pid) throws Exception {
+        VirtualMachine vm = VirtualMachine.attach(String.valueOf(pid));
+        String address;
+        try {
+            address = vm.startLocalManagementAgent();
+        } finally {
+            vm.detach();
+        }
+        return new ServerStats(JMXConnectorFactory.connect(new JMXServiceURL(address)));
+    }
+
+    Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.nanos = System.nanoTime();
+        snapshot.heapUsed = memory.getHeapMemoryUsage().getUsed();
+        snapshot.heapMax = memory.getHeapMemoryUsage().getMax();
+        snapshot.heapPeak = peakHeap.getAndSet(snapshot.heapUsed);
+        snapshot.cpuNanos = os.getProcessCpuTime();
+        snapshot.processors = os.getAvailableProcessors();
+        for (GarbageCollectorMXBean collector : collectors) {
+            snapshot.gcCounts.put(collector.getName(), collector.getCollectionCount());
+            snapshot.gcMillis.put(collector.getName(), collector.getCollectionTime());
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        try {
+            connector.close();
+        } catch (IOException ignored) {
+            // Server already gone
+        }
+    }
+
+    static class Snapshot {
+        long nanos;
+        long heapUsed;
+        long heapMax;
+        long heapPeak;
+        long cpuNanos;
+        int processors;
+        final Map<String, Long> gcCounts = new LinkedHashMap<>();
+        final Map<String, Long> gcMillis = new LinkedHashMap<>();
+
+        // What happened on the server between before and this snapshot
+        Delta since(Snapshot before) {
+            Delta delta = new Delta();
+            double elapsedMillis = (nanos - before.nanos) / 1e6;
+            delta.heapUsedMb = heapUsed / 1048576.0;
+            delta.heapPeakMb = Math.max(heapPeak, heapUsed) / 1048576.0;
+            delta.heapMaxMb = heapMax / 1048576.0;
+            delta.cpu = (cpuNanos - before.cpuNanos) / 1e6 / elapsedMillis / processors;
+            long totalGcMillis = 0;
+            for (Map.Entry<String, Long> entry : gcCounts.entrySet()) {
+                String name = entry.getKey();
+                long count = entry.getValue() - before.gcCounts.getOrDefault(name, 0L);
+                long millis = gcMillis.get(name) - before.gcMillis.getOrDefault(name, 0L);
+                delta.gcCounts.put(name, count);
+                delta.gcMillis.put(name, millis);
+                totalGcMillis += millis;
+            }
+            delta.gcTimeShare = totalGcMillis / elapsedMillis;
+            return delta;
+        }
+    }
+
+    static class Delta {
+        double heapUsedMb;
+        double heapPeakMb;
+        double heapMaxMb;
+        // Share of all cores the server process used
+        double cpu;
+        // Share of wall time spent in collections (pauses and concurrent cycles
+        // together, as the collector MXBeans report them)
+        double gcTimeShare;
+        final Map<String, Long> gcCounts = new LinkedHashMap<>();
+        final Map<String, Long> gcMillis = new LinkedHashMap<>();
+    }
+}
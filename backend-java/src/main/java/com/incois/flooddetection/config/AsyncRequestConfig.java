@@ -0,0 +1,33 @@
+package com.incois.flooddetection.config;
+
+import com.incois.flooddetection.service.BatchDetectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Batch responses stream from an async request, which the servlet container
+// would otherwise cut off after its own default (30 s on Tomcat) with the
+// stream half written. The async timeout follows the longest batch instead,
+// with some slack so BatchDetectionService can write its 504 lines first.
+@Configuration
+public class AsyncRequestConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncRequestConfig.class);
+
+    private static final long GRACE_MS = 10_000;
+
+    @Autowired
+    private BatchDetectionService batchDetectionService;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        long batchMs = batchDetectionService.getMaxDurationMs();
+        // No batch limit, no async limit either
+        long timeoutMs = batchMs > 0 ? batchMs + GRACE_MS : -1;
+        configurer.setDefaultTimeout(timeoutMs);
+        logger.info("Async request timeout {} ms", timeoutMs);
+    }
+}
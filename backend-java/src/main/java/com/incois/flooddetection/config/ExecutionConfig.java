@@ -0,0 +1,58 @@
+package com.incois.flooddetection.config;
+
+import com.incois.flooddetection.service.DetectionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Threads for the blocking, I/O-bound parts of a detection (social media
+// lookups, and later remote inference). With spring.threads.virtual.enabled
+// on a JDK 21+ runtime they run on virtual threads, like the request handlers
+// themselves; otherwise on a bounded platform pool. CPU-bound image decode and
+// analysis never run here: they have the platform image pool in
+// FloodDetectionService.
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    private static final int VIRTUAL_THREADS_MIN_JDK = 21;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Platform mode only: threads, and lookups waiting for one
+    @Value("${app.io.threads:16}")
+    private int ioThreads;
+
+    @Value("${app.io.queue-capacity:500}")
+    private int ioQueueCapacity;
+
+    @Bean
+    public TaskExecutor detectionIoExecutor(DetectionMetrics metrics) {
+        if (virtualThreads && Runtime.version().feature() >= VIRTUAL_THREADS_MIN_JDK) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("flood-io-");
+            executor.setVirtualThreads(true);
+            logger.info("Detection I/O runs on virtual threads");
+            return executor;
+        }
+        if (virtualThreads) {
+            logger.warn("Virtual threads need JDK {}+, running detection I/O on {} platform threads",
+                    VIRTUAL_THREADS_MIN_JDK, ioThreads);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ioThreads);
+        executor.setMaxPoolSize(ioThreads);
+        executor.setQueueCapacity(ioQueueCapacity);
+        executor.setThreadNamePrefix("flood-io-");
+        executor.initialize();
+        metrics.monitor(executor.getThreadPoolExecutor(), "flood-io");
+        return executor;
+    }
+}
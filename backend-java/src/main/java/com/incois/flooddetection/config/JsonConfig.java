@@ -0,0 +1,31 @@
+package com.incois.flooddetection.config;
+
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Jackson buffers a whole JSON string before ImagePayloadDeserializer sees it,
+// so the base64 image text is capped at what app.image.max-upload-bytes can
+// encode to rather than Jackson's 20M character default
+@Configuration
+public class JsonConfig {
+
+    @Value("${app.image.max-upload-bytes:10485760}")
+    private long maxUploadBytes;
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer streamReadConstraints() {
+        int maxStringLength = (int) Math.min(Integer.MAX_VALUE, maxBase64Length(maxUploadBytes));
+        return builder -> builder.postConfigurer(mapper -> mapper.getFactory().setStreamReadConstraints(
+                StreamReadConstraints.builder().maxStringLength(maxStringLength).build()));
+    }
+
+    // Four characters per three bytes, plus room for MIME line breaks (two
+    // every 76 characters) and a data URL prefix
+    static long maxBase64Length(long bytes) {
+        long encoded = (bytes + 2) / 3 * 4;
+        return encoded + encoded / 38 + 256;
+    }
+}
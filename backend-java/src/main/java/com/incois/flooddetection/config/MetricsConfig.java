@@ -0,0 +1,37 @@
+package com.incois.flooddetection.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incois.flooddetection.model.FloodDetectionResponse;
+import com.incois.flooddetection.service.DetectionMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+// Times the serialization stage of a detection. Spring Boot backs off its own
+// JSON converter when one is defined, so this one replaces it for every
+// endpoint and only adds a timer around detection responses.
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+            DetectionMetrics metrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException {
+                if (!(object instanceof FloodDetectionResponse)) {
+                    super.writeInternal(object, type, outputMessage);
+                    return;
+                }
+                long start = System.nanoTime();
+                super.writeInternal(object, type, outputMessage);
+                metrics.recordSerialization((FloodDetectionResponse) object, System.nanoTime() - start);
+            }
+        };
+    }
+}
@@ -1,14 +1,34 @@
 package com.incois.flooddetection.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.incois.flooddetection.model.FloodDetectionRequest;
 import com.incois.flooddetection.model.FloodDetectionResponse;
+import com.incois.flooddetection.service.BatchDetectionService;
+import com.incois.flooddetection.service.DetectionOverloadedException;
+import com.incois.flooddetection.service.DetectionResultCache;
 import com.incois.flooddetection.service.FloodDetectionService;
+import com.incois.flooddetection.service.FloodModelService;
+import com.incois.flooddetection.service.ImageRejectedException;
+import com.incois.flooddetection.service.NearDuplicateIndex;
+import com.incois.flooddetection.service.RequestStatistics;
+import com.incois.flooddetection.service.SaturationMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -20,6 +40,32 @@ public class FloodDetectionController {
     @Autowired
     private FloodDetectionService floodDetectionService;
 
+    @Autowired
+    private BatchDetectionService batchDetectionService;
+
+    @Autowired
+    private DetectionResultCache detectionResultCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private FloodModelService floodModelService;
+
+    @Autowired
+    private RequestStatistics requestStatistics;
+
+    @Autowired
+    private SaturationMonitor saturationMonitor;
+
+    // Answer /api/health with 503 while saturated, for load balancers that
+    // only look at the status code
+    @Value("${app.health.fail-when-saturated:false}")
+    private boolean failWhenSaturated;
+
     @PostMapping("/flood-detection")
     public ResponseEntity<FloodDetectionResponse> detectFlood(@RequestBody FloodDetectionRequest request) {
         try {
@@ -31,7 +77,154 @@ public class FloodDetectionController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
 
-            FloodDetectionResponse response = floodDetectionService.detectFlood(request);
+            return respond(() -> floodDetectionService.detectFlood(request));
+
+        } catch (Exception e) {
+            logger.error("Unexpected error in flood detection", e);
+            FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+            errorResponse.setError("Internal server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    // Binary alternative to the base64 JSON endpoint: the image is a multipart
+    // file part, coordinates are optional form fields
+    @PostMapping(value = "/flood-detection/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<FloodDetectionResponse> detectFloodMultipart(
+            @RequestPart("image") MultipartFile image,
+            @RequestParam(value = "latitude", required = false) Double latitude,
+            @RequestParam(value = "longitude", required = false) Double longitude) {
+        logger.info("Received multipart flood detection request ({} bytes)", image.getSize());
+
+        if (image.isEmpty()) {
+            FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+            errorResponse.setError("No image data provided");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        return respond(() -> {
+            try (InputStream imageStream = image.getInputStream()) {
+                return floodDetectionService.detectFlood(imageStream, toCoordinates(latitude, longitude));
+            }
+        });
+    }
+
+    // Raw image body, coordinates in X-Latitude / X-Longitude headers
+    @PostMapping(value = "/flood-detection/upload", consumes = {
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE })
+    public ResponseEntity<FloodDetectionResponse> detectFloodBinary(
+            InputStream imageStream,
+            @RequestHeader(value = "X-Latitude", required = false) Double latitude,
+            @RequestHeader(value = "X-Longitude", required = false) Double longitude) {
+        logger.info("Received binary flood detection request");
+        return respond(() -> floodDetectionService.detectFlood(imageStream, toCoordinates(latitude, longitude)));
+    }
+
+    // Several images per call, analysed on the batch pool. Results are streamed
+    // as NDJSON, one BatchDetectionResult per line in completion order.
+    //
+    // The array is read element by element rather than bound with @RequestBody,
+    // so a batch past app.batch.max-items is refused as soon as its next element
+    // starts, before it is buffered. Each image is already capped at
+    // app.image.max-upload-bytes while it is decoded.
+    @PostMapping(value = "/flood-detection/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> detectFloodBatch(InputStream body) {
+        List<FloodDetectionRequest> requests = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+                errorResponse.setError("A batch must be a JSON array of requests");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (requests.size() == batchDetectionService.getMaxItems()) {
+                    return batchSizeError();
+                }
+                requests.add(objectMapper.readValue(parser, FloodDetectionRequest.class));
+            }
+        } catch (IOException e) {
+            Throwable rejected = RequestBodyExceptionHandler.rejectedImageCause(e);
+            FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+            if (rejected != null) {
+                logger.warn("Image rejected: {}", rejected.getMessage());
+                errorResponse.setError("Image rejected: " + rejected.getMessage());
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse);
+            }
+            logger.warn("Unreadable batch request: {}", e.getMessage());
+            errorResponse.setError("Unreadable batch request: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        logger.info("Received batch flood detection request ({} items)", requests.size());
+
+        List<BatchDetectionService.BatchItem> items = new ArrayList<>();
+        for (FloodDetectionRequest request : requests) {
+            items.add(service -> service.detectFlood(request));
+        }
+        return respondBatch(items);
+    }
+
+    // Multipart bundle: one "images" part per image; latitude/longitude are
+    // given once for the whole batch or once per image
+    @PostMapping(value = "/flood-detection/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> detectFloodBatchMultipart(
+            @RequestPart("images") List<MultipartFile> images,
+            @RequestParam(value = "latitude", required = false) List<Double> latitudes,
+            @RequestParam(value = "longitude", required = false) List<Double> longitudes) {
+        logger.info("Received multipart batch flood detection request ({} items)", images.size());
+
+        if (!matchesBatch(latitudes, images.size()) || !matchesBatch(longitudes, images.size())) {
+            FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+            errorResponse.setError("Give latitude and longitude once, or once per image");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        List<BatchDetectionService.BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            MultipartFile image = images.get(i);
+            FloodDetectionRequest.Coordinates coordinates = toCoordinates(batchValue(latitudes, i),
+                    batchValue(longitudes, i));
+            items.add(service -> {
+                try (InputStream imageStream = image.getInputStream()) {
+                    return service.detectFlood(imageStream, coordinates);
+                }
+            });
+        }
+        return respondBatch(items);
+    }
+
+    private ResponseEntity<?> respondBatch(List<BatchDetectionService.BatchItem> items) {
+        if (items.isEmpty() || items.size() > batchDetectionService.getMaxItems()) {
+            return batchSizeError();
+        }
+
+        StreamingResponseBody body = out -> batchDetectionService.detectAll(items, result -> {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+            out.flush();
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private ResponseEntity<FloodDetectionResponse> batchSizeError() {
+        FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+        errorResponse.setError("A batch must hold between 1 and " + batchDetectionService.getMaxItems() + " images");
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
+    private static boolean matchesBatch(List<Double> values, int size) {
+        return values == null || values.size() == 1 || values.size() == size;
+    }
+
+    private static Double batchValue(List<Double> values, int index) {
+        if (values == null) {
+            return null;
+        }
+        return values.size() == 1 ? values.get(0) : values.get(index);
+    }
+
+    private ResponseEntity<FloodDetectionResponse> respond(Detection detection) {
+        try {
+            FloodDetectionResponse response = detection.run();
 
             if (response.isSuccess()) {
                 logger.info("Flood detection completed successfully");
@@ -41,6 +234,16 @@ public class FloodDetectionController {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
             }
 
+        } catch (ImageRejectedException e) {
+            logger.warn("Image rejected: {}", e.getMessage());
+            FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+            errorResponse.setError("Image rejected: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse);
+        } catch (DetectionOverloadedException e) {
+            logger.warn("Flood detection shed: {}", e.getMessage());
+            FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+            errorResponse.setError(e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
         } catch (Exception e) {
             logger.error("Unexpected error in flood detection", e);
             FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
@@ -49,16 +252,48 @@ public class FloodDetectionController {
         }
     }
 
+    private static FloodDetectionRequest.Coordinates toCoordinates(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        return new FloodDetectionRequest.Coordinates(latitude, longitude);
+    }
+
+    @FunctionalInterface
+    private interface Detection {
+        FloodDetectionResponse run() throws Exception;
+    }
+
     @GetMapping("/health")
     public ResponseEntity<HealthResponse> healthCheck() {
-        HealthResponse health = new HealthResponse("healthy", "prithivMLmods/flood-image-detection");
+        SaturationMonitor.Saturation saturation = saturationMonitor.saturation();
+        HealthResponse health = new HealthResponse(saturation.isSaturated() ? "saturated" : "healthy",
+                floodModelService.getModelName());
+        health.setInference(floodModelService.stats());
+        health.setCache(detectionResultCache.stats());
+        health.setNearDuplicates(nearDuplicateIndex.stats());
+        health.setCoalescedRequests(floodDetectionService.getCoalescedRequests());
+        health.setSaturation(saturation);
+        if (saturation.isSaturated() && failWhenSaturated) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(health);
+        }
         return ResponseEntity.ok(health);
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<RequestStatistics.Snapshot> stats() {
+        return ResponseEntity.ok(requestStatistics.snapshot());
+    }
+
     // Inner class for health response
     public static class HealthResponse {
         private String status;
         private String model;
+        private FloodModelService.Stats inference;
+        private DetectionResultCache.Stats cache;
+        private NearDuplicateIndex.Stats nearDuplicates;
+        private long coalescedRequests;
+        private SaturationMonitor.Saturation saturation;
 
         public HealthResponse(String status, String model) {
             this.status = status;
@@ -80,5 +315,45 @@ public class FloodDetectionController {
         public void setModel(String model) {
             this.model = model;
         }
+
+        public FloodModelService.Stats getInference() {
+            return inference;
+        }
+
+        public void setInference(FloodModelService.Stats inference) {
+            this.inference = inference;
+        }
+
+        public DetectionResultCache.Stats getCache() {
+            return cache;
+        }
+
+        public void setCache(DetectionResultCache.Stats cache) {
+            this.cache = cache;
+        }
+
+        public NearDuplicateIndex.Stats getNearDuplicates() {
+            return nearDuplicates;
+        }
+
+        public void setNearDuplicates(NearDuplicateIndex.Stats nearDuplicates) {
+            this.nearDuplicates = nearDuplicates;
+        }
+
+        public long getCoalescedRequests() {
+            return coalescedRequests;
+        }
+
+        public void setCoalescedRequests(long coalescedRequests) {
+            this.coalescedRequests = coalescedRequests;
+        }
+
+        public SaturationMonitor.Saturation getSaturation() {
+            return saturation;
+        }
+
+        public void setSaturation(SaturationMonitor.Saturation saturation) {
+            this.saturation = saturation;
+        }
     }
 }
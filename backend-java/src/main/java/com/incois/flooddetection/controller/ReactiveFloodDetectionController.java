@@ -0,0 +1,65 @@
+package com.incois.flooddetection.controller;
+
+import com.incois.flooddetection.model.FloodDetectionRequest;
+import com.incois.flooddetection.model.FloodDetectionResponse;
+import com.incois.flooddetection.service.DetectionOverloadedException;
+import com.incois.flooddetection.service.ImageRejectedException;
+import com.incois.flooddetection.service.ReactiveDetectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+// Same contract as POST /api/flood-detection, but the request thread is
+// released as soon as the detection is handed to the reactive scheduler,
+// and excess load is shed with 503 instead of queueing on threads
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "*")
+public class ReactiveFloodDetectionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveFloodDetectionController.class);
+
+    // Seconds a shed client is asked to wait before retrying
+    private static final String RETRY_AFTER_SECONDS = "2";
+
+    @Autowired
+    private ReactiveDetectionService reactiveDetectionService;
+
+    @PostMapping("/flood-detection/reactive")
+    public Mono<ResponseEntity<FloodDetectionResponse>> detectFlood(@RequestBody FloodDetectionRequest request) {
+        logger.info("Received reactive flood detection request");
+
+        if (request.getImage() == null || request.getImage().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body(errorResponse("No image data provided")));
+        }
+
+        return reactiveDetectionService.detectFlood(request)
+                .map(response -> response.isSuccess()
+                        ? ResponseEntity.ok(response)
+                        : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response))
+                .onErrorResume(ImageRejectedException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                                .body(errorResponse("Image rejected: " + e.getMessage()))))
+                .onErrorResume(DetectionOverloadedException.class, e -> {
+                    logger.warn("Reactive flood detection shed: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header("Retry-After", RETRY_AFTER_SECONDS)
+                            .body(errorResponse(e.getMessage())));
+                })
+                .onErrorResume(e -> {
+                    logger.error("Unexpected error in reactive flood detection", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(errorResponse("Internal server error: " + e.getMessage())));
+                });
+    }
+
+    private static FloodDetectionResponse errorResponse(String message) {
+        FloodDetectionResponse response = new FloodDetectionResponse(false);
+        response.setError(message);
+        return response;
+    }
+}
@@ -0,0 +1,44 @@
+package com.incois.flooddetection.controller;
+
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.incois.flooddetection.model.FloodDetectionResponse;
+import com.incois.flooddetection.service.ImageRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// A base64 image over the upload limit is rejected while the JSON body is
+// still being parsed, before any controller method runs. Answer it with 413
+// like every other rejected image; other unreadable bodies keep Spring's 400.
+@RestControllerAdvice
+public class RequestBodyExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestBodyExceptionHandler.class);
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<FloodDetectionResponse> handleUnreadableBody(HttpMessageNotReadableException e) {
+        Throwable cause = rejectedImageCause(e.getCause());
+        if (cause == null) {
+            throw e;
+        }
+        logger.warn("Image rejected: {}", cause.getMessage());
+        FloodDetectionResponse errorResponse = new FloodDetectionResponse(false);
+        errorResponse.setError("Image rejected: " + cause.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse);
+    }
+
+    // The image size rejection behind a parse failure, or null when the body
+    // was unreadable for another reason
+    static Throwable rejectedImageCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ImageRejectedException || cause instanceof StreamConstraintsException) {
+                return cause;
+            }
+        }
+        return null;
+    }
+}
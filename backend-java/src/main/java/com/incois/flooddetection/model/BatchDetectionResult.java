@@ -0,0 +1,50 @@
+package com.incois.flooddetection.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// One line of a batch response: the outcome of the item at `index` in the
+// request, with the HTTP status the single-image endpoint would have used
+public class BatchDetectionResult {
+
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("status")
+    private int status;
+
+    @JsonProperty("result")
+    private FloodDetectionResponse result;
+
+    public BatchDetectionResult() {
+    }
+
+    public BatchDetectionResult(int index, int status, FloodDetectionResponse result) {
+        this.index = index;
+        this.status = status;
+        this.result = result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public FloodDetectionResponse getResult() {
+        return result;
+    }
+
+    public void setResult(FloodDetectionResponse result) {
+        this.result = result;
+    }
+}
@@ -5,7 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class FloodDetectionRequest {
 
     @JsonProperty("image")
-    private String image;
+    private ImagePayload image;
 
     @JsonProperty("coordinates")
     private Coordinates coordinates;
@@ -13,16 +13,16 @@ public class FloodDetectionRequest {
     public FloodDetectionRequest() {
     }
 
-    public FloodDetectionRequest(String image, Coordinates coordinates) {
+    public FloodDetectionRequest(ImagePayload image, Coordinates coordinates) {
         this.image = image;
         this.coordinates = coordinates;
     }
 
-    public String getImage() {
+    public ImagePayload getImage() {
         return image;
     }
 
-    public void setImage(String image) {
+    public void setImage(ImagePayload image) {
         this.image = image;
     }
 
@@ -32,6 +32,9 @@ public class FloodDetectionResponse {
     @JsonProperty("social_media_analysis")
     private SocialMediaAnalysisData socialMediaAnalysis;
 
+    @JsonProperty("diagnostics")
+    private DiagnosticsData diagnostics;
+
     public FloodDetectionResponse() {
     }
 
@@ -112,6 +115,14 @@ public class FloodDetectionResponse {
         this.socialMediaAnalysis = socialMediaAnalysis;
     }
 
+    public DiagnosticsData getDiagnostics() {
+        return diagnostics;
+    }
+
+    public void setDiagnostics(DiagnosticsData diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
     public static class LocationInfo {
         @JsonProperty("latitude")
         private double latitude;
@@ -226,4 +237,130 @@ public class FloodDetectionResponse {
             this.locationKey = locationKey;
         }
     }
+
+    public static class DiagnosticsData {
+        @JsonProperty("image_format")
+        private String imageFormat;
+
+        @JsonProperty("source_width")
+        private int sourceWidth;
+
+        @JsonProperty("source_height")
+        private int sourceHeight;
+
+        @JsonProperty("decode_subsampling")
+        private int decodeSubsampling;
+
+        @JsonProperty("image_width")
+        private int imageWidth;
+
+        @JsonProperty("image_height")
+        private int imageHeight;
+
+        @JsonProperty("sample_counts")
+        private java.util.Map<String, Integer> sampleCounts;
+
+        @JsonProperty("cache_hit")
+        private boolean cacheHit;
+
+        @JsonProperty("near_duplicate_distance")
+        private Integer nearDuplicateDistance;
+
+        @JsonProperty("model_backend")
+        private String modelBackend;
+
+        @JsonProperty("inference_ms")
+        private Double inferenceMs;
+
+        public DiagnosticsData() {
+        }
+
+        public String getImageFormat() {
+            return imageFormat;
+        }
+
+        public void setImageFormat(String imageFormat) {
+            this.imageFormat = imageFormat;
+        }
+
+        public int getSourceWidth() {
+            return sourceWidth;
+        }
+
+        public void setSourceWidth(int sourceWidth) {
+            this.sourceWidth = sourceWidth;
+        }
+
+        public int getSourceHeight() {
+            return sourceHeight;
+        }
+
+        public void setSourceHeight(int sourceHeight) {
+            this.sourceHeight = sourceHeight;
+        }
+
+        public int getDecodeSubsampling() {
+            return decodeSubsampling;
+        }
+
+        public void setDecodeSubsampling(int decodeSubsampling) {
+            this.decodeSubsampling = decodeSubsampling;
+        }
+
+        public int getImageWidth() {
+            return imageWidth;
+        }
+
+        public void setImageWidth(int imageWidth) {
+            this.imageWidth = imageWidth;
+        }
+
+        public int getImageHeight() {
+            return imageHeight;
+        }
+
+        public void setImageHeight(int imageHeight) {
+            this.imageHeight = imageHeight;
+        }
+
+        public java.util.Map<String, Integer> getSampleCounts() {
+            return sampleCounts;
+        }
+
+        public void setSampleCounts(java.util.Map<String, Integer> sampleCounts) {
+            this.sampleCounts = sampleCounts;
+        }
+
+        public boolean isCacheHit() {
+            return cacheHit;
+        }
+
+        public void setCacheHit(boolean cacheHit) {
+            this.cacheHit = cacheHit;
+        }
+
+        public Integer getNearDuplicateDistance() {
+            return nearDuplicateDistance;
+        }
+
+        public void setNearDuplicateDistance(Integer nearDuplicateDistance) {
+            this.nearDuplicateDistance = nearDuplicateDistance;
+        }
+
+        public String getModelBackend() {
+            return modelBackend;
+        }
+
+        public void setModelBackend(String modelBackend) {
+            this.modelBackend = modelBackend;
+        }
+
+        public Double getInferenceMs() {
+            return inferenceMs;
+        }
+
+        public void setInferenceMs(Double inferenceMs) {
+            this.inferenceMs = inferenceMs;
+        }
+    }
 }
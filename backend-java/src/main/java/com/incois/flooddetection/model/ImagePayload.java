@@ -0,0 +1,133 @@
+package com.incois.flooddetection.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.incois.flooddetection.service.ImageRejectedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+// Image bytes of a JSON upload. The base64 text is decoded while the request
+// is parsed and kept in fixed-size chunks, so a large image never needs one
+// contiguous array (a humongous allocation under G1).
+@JsonDeserialize(using = ImagePayloadDeserializer.class)
+public class ImagePayload {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private long size;
+    // Time spent decoding the base64 text of a JSON upload (-1 for raw uploads)
+    private long decodeNanos = -1;
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public InputStream openStream() {
+        return new ChunkInputStream();
+    }
+
+    // Feeds the bytes to a digest chunk by chunk, without copying them
+    public void update(MessageDigest digest) {
+        long remaining = size;
+        for (byte[] chunk : chunks) {
+            int n = (int) Math.min(chunk.length, remaining);
+            digest.update(chunk, 0, n);
+            remaining -= n;
+        }
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    void setDecodeNanos(long decodeNanos) {
+        this.decodeNanos = decodeNanos;
+    }
+
+    public static ImagePayload read(InputStream in) throws IOException {
+        ImagePayload payload = new ImagePayload();
+        in.transferTo(payload.appender(Long.MAX_VALUE));
+        return payload;
+    }
+
+    // A write that would take the payload past limit bytes fails with
+    // ImageRejectedException, before anything past the limit is stored
+    OutputStream appender(long limit) {
+        return new ChunkOutputStream(limit);
+    }
+
+    private class ChunkOutputStream extends OutputStream {
+        private final long limit;
+
+        ChunkOutputStream(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (size + length > limit) {
+                throw new ImageRejectedException(
+                        String.format("Image is at least %d bytes, limit is %d bytes", size + length, limit));
+            }
+            while (length > 0) {
+                int used = (int) (size % CHUNK_SIZE);
+                if (used == 0) {
+                    chunks.add(new byte[CHUNK_SIZE]);
+                }
+                int n = Math.min(length, CHUNK_SIZE - used);
+                System.arraycopy(buffer, offset, chunks.get(chunks.size() - 1), used, n);
+                size += n;
+                offset += n;
+                length -= n;
+            }
+        }
+    }
+
+    private class ChunkInputStream extends InputStream {
+        private long position;
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            byte b = chunks.get((int) (position / CHUNK_SIZE))[(int) (position % CHUNK_SIZE)];
+            position++;
+            return b & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            int used = (int) (position % CHUNK_SIZE);
+            int n = (int) Math.min(Math.min(length, CHUNK_SIZE - used), size - position);
+            System.arraycopy(chunks.get((int) (position / CHUNK_SIZE)), used, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+    }
+}
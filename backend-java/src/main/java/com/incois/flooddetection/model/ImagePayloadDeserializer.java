@@ -0,0 +1,115 @@
+package com.incois.flooddetection.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+// Decodes the base64 "image" field without materializing it as a String.
+// Jackson still buffers the whole token in its TextBuffer first (JsonConfig
+// caps its length); getText(Writer) then hands that buffer over segment by
+// segment, and each segment goes through a streaming base64 decoder into an
+// ImagePayload. Jackson's own readBinaryValue would decode while reading, but
+// it rejects the data URL prefix clients are allowed to send.
+public class ImagePayloadDeserializer extends JsonDeserializer<ImagePayload> {
+
+    // Injected by Spring's handler instantiator; the default applies to
+    // ObjectMappers built outside the application context
+    @Value("${app.image.max-upload-bytes:10485760}")
+    private long maxUploadBytes = 10485760;
+
+    @Override
+    public ImagePayload deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return (ImagePayload) context.handleUnexpectedToken(ImagePayload.class, parser);
+        }
+
+        ImagePayload payload = new ImagePayload();
+        long start = System.nanoTime();
+        try (Base64Writer writer = new Base64Writer(new Base64OutputStream(payload.appender(maxUploadBytes), false))) {
+            parser.getText(writer);
+        }
+        payload.setDecodeNanos(System.nanoTime() - start);
+        return payload;
+    }
+
+    // Feeds characters to the decoder, dropping a leading data URL prefix
+    // ("data:image/...;base64,") the way the String-based path did
+    private static class Base64Writer extends Writer {
+        private static final String DATA_URL_PREFIX = "data:image";
+
+        private final OutputStream decoder;
+        private final byte[] scratch = new byte[8192];
+        private final StringBuilder head = new StringBuilder();
+        // Until the start of the text has been checked against the prefix
+        private boolean checkingPrefix = true;
+        private boolean skippingPrefix;
+
+        Base64Writer(OutputStream decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int end = offset + length;
+            while (checkingPrefix && offset < end) {
+                head.append(chars[offset++]);
+                if (!DATA_URL_PREFIX.startsWith(head.toString())) {
+                    checkingPrefix = false;
+                    flushHead();
+                } else if (head.length() == DATA_URL_PREFIX.length()) {
+                    checkingPrefix = false;
+                    skippingPrefix = true;
+                }
+            }
+            while (skippingPrefix && offset < end) {
+                if (chars[offset++] == ',') {
+                    skippingPrefix = false;
+                }
+            }
+            if (offset < end) {
+                decode(chars, offset, end);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            decoder.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (checkingPrefix) {
+                flushHead();
+            }
+            decoder.close();
+        }
+
+        private void flushHead() throws IOException {
+            char[] chars = head.toString().toCharArray();
+            head.setLength(0);
+            decode(chars, 0, chars.length);
+        }
+
+        // Base64 is ASCII; anything else is skipped like any other non-alphabet
+        // character
+        private void decode(char[] chars, int offset, int end) throws IOException {
+            while (offset < end) {
+                int n = 0;
+                while (offset < end && n < scratch.length) {
+                    char c = chars[offset++];
+                    if (c < 0x80) {
+                        scratch[n++] = (byte) c;
+                    }
+                }
+                decoder.write(scratch, 0, n);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.incois.flooddetection.service;
+
+import com.incois.flooddetection.model.BatchDetectionResult;
+import com.incois.flooddetection.model.FloodDetectionResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs the items of batch requests on a bounded worker pool and hands their
+// results back in completion order
+@Service
+public class BatchDetectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchDetectionService.class);
+
+    @Value("${app.batch.threads:2}")
+    private int threads;
+
+    // Items of all batches waiting for a worker; beyond this items fail fast
+    @Value("${app.batch.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${app.batch.max-items:50}")
+    private int maxItems;
+
+    // Time allowed per item, waiting for a worker included (0 = no limit). A
+    // batch gets this times its item count; items still running then are
+    // reported with status 504 and cancelled.
+    @Value("${app.batch.item-timeout-ms:35000}")
+    private long itemTimeoutMs;
+
+    @Autowired
+    private FloodDetectionService floodDetectionService;
+
+    @Autowired
+    private DetectionMetrics metrics;
+
+    @Autowired
+    private RequestStatistics requestStatistics;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "flood-batch-" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        metrics.monitor(executor, "flood-batch");
+        logger.info("Batch detection: {} workers, queue of {} items", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    // The longest a batch of max-items can take, or 0 when there is no limit
+    public long getMaxDurationMs() {
+        return maxItems * itemTimeoutMs;
+    }
+
+    ThreadPoolExecutor executor() {
+        return executor;
+    }
+
+    // Blocks until every item has been reported to the sink, or until the
+    // batch runs out of time. If the sink fails (e.g. the client went away)
+    // the remaining items are cancelled.
+    public void detectAll(List<BatchItem> items, ResultSink sink) throws IOException {
+        ExecutorCompletionService<BatchDetectionResult> completion = new ExecutorCompletionService<>(executor);
+        List<Future<BatchDetectionResult>> pending = new ArrayList<>();
+        boolean[] reported = new boolean[items.size()];
+        long timeoutMs = items.size() * itemTimeoutMs;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (int index = 0; index < items.size(); index++) {
+                BatchItem item = items.get(index);
+                int itemIndex = index;
+                try {
+                    pending.add(completion.submit(() -> run(itemIndex, item)));
+                } catch (RejectedExecutionException e) {
+                    requestStatistics.recordShed();
+                    reported[index] = true;
+                    sink.accept(new BatchDetectionResult(index, 503, errorResponse("Batch queue is full")));
+                }
+            }
+
+            for (int done = 0; done < pending.size(); done++) {
+                Future<BatchDetectionResult> next = timeoutMs > 0
+                        ? completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        : completion.take();
+                if (next == null) {
+                    reportTimedOut(reported, timeoutMs, sink);
+                    return;
+                }
+                BatchDetectionResult result = next.get();
+                reported[result.getIndex()] = true;
+                sink.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for batch results", e);
+        } catch (ExecutionException e) {
+            // run() reports every failure as a result, so this is a bug
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<BatchDetectionResult> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static void reportTimedOut(boolean[] reported, long timeoutMs, ResultSink sink) throws IOException {
+        logger.warn("Batch timed out after {} ms", timeoutMs);
+        for (int index = 0; index < reported.length; index++) {
+            if (!reported[index]) {
+                sink.accept(new BatchDetectionResult(index, 504,
+                        errorResponse("Batch timed out after " + timeoutMs + " ms")));
+            }
+        }
+    }
+
+    private BatchDetectionResult run(int index, BatchItem item) {
+        try {
+            FloodDetectionResponse response = item.detect(floodDetectionService);
+            return new BatchDetectionResult(index, response.isSuccess() ? 200 : 500, response);
+        } catch (ImageRejectedException e) {
+            return new BatchDetectionResult(index, 413, errorResponse("Image rejected: " + e.getMessage()));
+        } catch (DetectionOverloadedException e) {
+            return new BatchDetectionResult(index, 503, errorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error in batch item {}", index, e);
+            return new BatchDetectionResult(index, 500, errorResponse("Internal server error: " + e.getMessage()));
+        }
+    }
+
+    private static FloodDetectionResponse errorResponse(String message) {
+        FloodDetectionResponse response = new FloodDetectionResponse(false);
+        response.setError(message);
+        return response;
+    }
+
+    // One image of a batch, detected through the single-image service
+    @FunctionalInterface
+    public interface BatchItem {
+        FloodDetectionResponse detect(FloodDetectionService service) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(BatchDetectionResult result) throws IOException;
+    }
+}
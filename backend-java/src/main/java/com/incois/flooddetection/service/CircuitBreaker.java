@@ -0,0 +1,76 @@
+package com.incois.flooddetection.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Stops calling a failing dependency for a while. After failureThreshold
+// consecutive failures the breaker opens and allowRequest refuses calls; once
+// openMillis have passed a single trial call goes through, and its outcome
+// closes the breaker again or reopens it. A call that ends without a verdict
+// on the dependency (cancelled, or failed before reaching it) is abandoned,
+// which leaves the counts alone and hands the trial to the next call.
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long opened;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt >= openNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // The trial call is still out
+                return false;
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                opened++;
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+    }
+
+    synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) {
+            // openedAt is long past, so the next call is the new trial
+            state = State.OPEN;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    // How often the breaker has opened
+    synchronized long timesOpened() {
+        return opened;
+    }
+}
@@ -0,0 +1,22 @@
+package com.incois.flooddetection.service;
+
+import java.awt.image.BufferedImage;
+
+// A decoded upload together with what the header said about the original
+class DecodedImage {
+
+    final BufferedImage image;
+    final String format;
+    final int sourceWidth;
+    final int sourceHeight;
+    // Every n-th pixel of every n-th row was decoded (1 = full resolution)
+    final int subsampling;
+
+    DecodedImage(BufferedImage image, String format, int sourceWidth, int sourceHeight, int subsampling) {
+        this.image = image;
+        this.format = format;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.subsampling = subsampling;
+    }
+}
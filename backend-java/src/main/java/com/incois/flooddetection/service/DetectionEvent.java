@@ -0,0 +1,57 @@
+package com.incois.flooddetection.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event spanning a whole detection, from the service call to the
+// response. Committed on the request thread; the stage events inside it run
+// on the image and I/O pools.
+@Name("com.incois.flooddetection.Detection")
+@Label("Flood Detection")
+@Category({ "Flood Detection" })
+@Description("One detection request, with the image it carried")
+@Enabled(false)
+@StackTrace(false)
+class DetectionEvent extends Event {
+
+    @Label("Format")
+    String format;
+
+    @Label("Source Width")
+    int sourceWidth;
+
+    @Label("Source Height")
+    int sourceHeight;
+
+    @Label("Upload Size")
+    @DataAmount
+    long uploadBytes;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    @Label("Near Duplicate")
+    boolean nearDuplicate;
+
+    void finish(DetectionTrace trace) {
+        end();
+        if (shouldCommit()) {
+            ImageDetection detection = trace.detection();
+            if (detection != null) {
+                this.format = detection.format;
+                this.sourceWidth = detection.sourceWidth;
+                this.sourceHeight = detection.sourceHeight;
+                this.nearDuplicate = detection.matchDistance >= 0;
+            }
+            this.uploadBytes = trace.uploadBytes();
+            this.cacheHit = trace.cacheHit();
+            commit();
+        }
+    }
+}
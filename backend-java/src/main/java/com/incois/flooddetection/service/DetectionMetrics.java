@@ -0,0 +1,105 @@
+package com.incois.flooddetection.service;
+
+import com.incois.flooddetection.model.FloodDetectionResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// Micrometer meters for the detection pipeline, scraped at /actuator/prometheus:
+//  - detection.stage: one timer per stage, tagged with the image format and a
+//    size bucket of the original image, so the stage that eats the latency
+//    budget shows up per kind of upload
+//  - detection.upload.bytes and detection.image.megapixels: what was uploaded
+//  - gauges for detections in flight and the queue depth of every pool
+@Service
+public class DetectionMetrics {
+
+    private static final String UNKNOWN = "unknown";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    void record(DetectionTrace trace) {
+        ImageDetection detection = trace.detection();
+        Tags tags = detection != null
+                ? imageTags(detection.format, detection.sourceWidth, detection.sourceHeight)
+                : Tags.of("format", UNKNOWN, "size", UNKNOWN);
+
+        for (DetectionTrace.Stage stage : DetectionTrace.stages()) {
+            long nanos = trace.nanos(stage);
+            if (nanos >= 0) {
+                stageTimer(stage.tag, tags).record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (trace.uploadBytes() >= 0) {
+            DistributionSummary.builder("detection.upload.bytes")
+                    .description("Size of uploaded images")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(registry)
+                    .record(trace.uploadBytes());
+        }
+        if (detection != null) {
+            DistributionSummary.builder("detection.image.megapixels")
+                    .description("Resolution of uploaded images before subsampling")
+                    .tags(tags)
+                    .register(registry)
+                    .record((double) detection.sourceWidth * detection.sourceHeight / 1_000_000.0);
+        }
+    }
+
+    // Writing a response body; timed by the JSON message converter
+    public void recordSerialization(FloodDetectionResponse response, long nanos) {
+        FloodDetectionResponse.DiagnosticsData diagnostics = response.getDiagnostics();
+        Tags tags = diagnostics != null && diagnostics.getImageFormat() != null
+                ? imageTags(diagnostics.getImageFormat(), diagnostics.getSourceWidth(), diagnostics.getSourceHeight())
+                : Tags.of("format", UNKNOWN, "size", UNKNOWN);
+        stageTimer("serialization", tags).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Pool size, active threads, queued tasks and completions of an executor
+    public void monitor(ExecutorService executor, String name) {
+        new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(registry);
+    }
+
+    <T> void gauge(String name, String description, T owner, ToDoubleFunction<T> value) {
+        Gauge.builder(name, owner, value).description(description).register(registry);
+    }
+
+    private Timer stageTimer(String stage, Tags imageTags) {
+        return Timer.builder("detection.stage")
+                .description("Time spent in each stage of a detection")
+                .tags(imageTags.and("stage", stage))
+                .register(registry);
+    }
+
+    private static Tags imageTags(String format, int width, int height) {
+        return Tags.of("format", format, "size", sizeBucket((long) width * height));
+    }
+
+    // Coarse buckets keep the number of time series small
+    static String sizeBucket(long pixels) {
+        if (pixels <= 0) {
+            return UNKNOWN;
+        }
+        if (pixels < 1_000_000) {
+            return "under_1mp";
+        }
+        if (pixels < 4_000_000) {
+            return "1_to_4mp";
+        }
+        if (pixels < 12_000_000) {
+            return "4_to_12mp";
+        }
+        return "12mp_and_over";
+    }
+}
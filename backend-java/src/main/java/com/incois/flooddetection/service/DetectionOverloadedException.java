@@ -0,0 +1,9 @@
+package com.incois.flooddetection.service;
+
+// A detection shed because the node is already at its configured concurrency
+public class DetectionOverloadedException extends RuntimeException {
+
+    public DetectionOverloadedException(String message) {
+        super(message);
+    }
+}
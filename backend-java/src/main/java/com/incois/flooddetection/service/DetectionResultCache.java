@@ -0,0 +1,183 @@
+package com.incois.flooddetection.service;
+
+import com.incois.flooddetection.model.ImagePayload;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Image-only detection results keyed by a digest of the uploaded bytes, so
+// a photo that is forwarded and re-uploaded is decoded and analysed once.
+// Least recently used entries are evicted past the entry or memory limit,
+// and entries older than the TTL are never returned.
+@Service
+public class DetectionResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetectionResultCache.class);
+
+    @Value("${app.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.cache.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${app.cache.max-memory-bytes:16777216}")
+    private long maxMemoryBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // SHA-256 rather than a non-cryptographic hash: results are shared across
+    // users, so a crafted collision must not be able to poison them. It runs
+    // well above upload bandwidth with the JDK's SHA intrinsics.
+    String keyOf(ImagePayload image) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            image.update(digest);
+            return Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    ImageDetection get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && !isExpired(entry, System.nanoTime())) {
+                hits.incrementAndGet();
+                return entry.detection;
+            }
+            if (entry != null) {
+                remove(key, entry);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String key, ImageDetection detection) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(detection, System.nanoTime());
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                memoryBytes -= previous.bytes;
+            }
+            memoryBytes += entry.bytes;
+            evict(entry.createdAt);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(entries.size(), memoryBytes, hits.get(), misses.get(), evictions.get());
+        }
+    }
+
+    // Drops expired entries from the cold end, then the least recently used
+    // ones until both limits hold
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            boolean overLimit = entries.size() > maxEntries || memoryBytes > maxMemoryBytes;
+            if (!overLimit && !isExpired(eldest, now)) {
+                break;
+            }
+            it.remove();
+            memoryBytes -= eldest.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        memoryBytes -= entry.bytes;
+        evictions.incrementAndGet();
+        logger.debug("Expired cached detection {}", key);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlSeconds > 0 && now - entry.createdAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    private static class Entry {
+        final ImageDetection detection;
+        final long createdAt;
+        final long bytes;
+
+        Entry(ImageDetection detection, long createdAt) {
+            this.detection = detection;
+            this.createdAt = createdAt;
+            // Key (64 hex chars) and map node on top of the result itself
+            this.bytes = detection.estimatedBytes() + 200;
+        }
+    }
+
+    public static class Stats {
+        private final int entries;
+        private final long memoryBytes;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Stats(int entries, long memoryBytes, long hits, long misses, long evictions) {
+            this.entries = entries;
+            this.memoryBytes = memoryBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
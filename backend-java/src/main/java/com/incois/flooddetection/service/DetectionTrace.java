@@ -0,0 +1,93 @@
+package com.incois.flooddetection.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Time each stage of one detection took, collected as the request moves
+// across threads and reported to DetectionMetrics once it is done. Stages
+// that did not run (cache hits, requests without coordinates) stay at -1.
+class DetectionTrace {
+
+    enum Stage {
+        BASE64_DECODE("base64_decode"),
+        IMAGE_QUEUE("image_queue"),
+        IMAGE_DECODE("image_decode"),
+        UNPACK("unpack"),
+        PERCEPTUAL_HASH("perceptual_hash"),
+        DERIVE_PLANES("derive_planes"),
+        FEATURES("features"),
+        SCORING("scoring"),
+        SOCIAL_MEDIA("social_media");
+
+        final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray nanos = new AtomicLongArray(STAGES.length);
+    private volatile ImageDetection detection;
+    private volatile boolean cacheHit;
+    private volatile long uploadBytes = -1;
+    // Until the detection produces a successful response
+    private volatile RequestStatistics.Outcome outcome = RequestStatistics.Outcome.ERROR;
+
+    DetectionTrace() {
+        for (int i = 0; i < STAGES.length; i++) {
+            nanos.set(i, -1);
+        }
+    }
+
+    void record(Stage stage, long elapsedNanos) {
+        nanos.set(stage.ordinal(), elapsedNanos);
+    }
+
+    void recordSince(Stage stage, long startNanos) {
+        record(stage, System.nanoTime() - startNanos);
+    }
+
+    long nanos(Stage stage) {
+        return nanos.get(stage.ordinal());
+    }
+
+    static Stage[] stages() {
+        return STAGES;
+    }
+
+    // The image the stages worked on; its format and size tag the timings
+    void describe(ImageDetection detection, boolean cacheHit) {
+        this.detection = detection;
+        this.cacheHit = cacheHit;
+    }
+
+    ImageDetection detection() {
+        return detection;
+    }
+
+    boolean cacheHit() {
+        return cacheHit;
+    }
+
+    void setUploadBytes(long uploadBytes) {
+        this.uploadBytes = uploadBytes;
+    }
+
+    long uploadBytes() {
+        return uploadBytes;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    void setOutcome(RequestStatistics.Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    RequestStatistics.Outcome outcome() {
+        return outcome;
+    }
+}
@@ -0,0 +1,20 @@
+package com.incois.flooddetection.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// A prediction a backend made with a stand-in model instead of its own (the
+// remote backend while its server is down or its breaker is open). It is
+// scored like any other, but it is not remembered: FloodDetectionService
+// neither caches nor indexes it, so the real model's answer replaces it once
+// the backend recovers.
+final class FallbackPrediction extends HashMap<String, Double> {
+
+    // Name of the model that actually made the prediction
+    final String model;
+
+    FallbackPrediction(String model, Map<String, Double> prediction) {
+        super(prediction);
+        this.model = model;
+    }
+}
@@ -0,0 +1,547 @@
+package com.incois.flooddetection.service;
+
+import java.util.Map;
+
+// Running totals for every feature in ImageAnalysisResult. Each feature has its
+// own sampling grid (stride from the SamplingPlan, fixed border), but all of
+// them are fed from the same row-major walk over the shared ImagePlanes.
+// Accumulators for separate row bands are combined with merge.
+class FeatureAccumulator {
+
+    // Every neighbour-difference feature reads the 16 pixels within 2 of the
+    // sample, off its row and column, exactly as the original kernels did
+    private static final int[] NEIGHBOUR_OFFSETS = { -2, -1, 1, 2 };
+    // An edge pixel differs from one of its neighbours by more than this
+    private static final int EDGE_LEVELS = 30;
+    // Texture counts the neighbours that differ from the center by more than this
+    private static final int TEXTURE_LEVELS = 20;
+    // Ripples brighten by 10 levels per pixel of distance from the center,
+    // give or take RIPPLE_TOLERANCE; RIPPLE_RISE holds the expected rise of
+    // each neighbour in the order isRipple visits them
+    private static final int RIPPLE_SLOPE_LEVELS = 10;
+    private static final int RIPPLE_TOLERANCE = 15;
+    private static final double[] RIPPLE_RISE = rippleRise();
+    // Two pixels of a 5x5 window that differ by d levels put its summed
+    // squared deviation at d^2 / 2 or more, so a window below spread(d) has no
+    // difference of d and is skipped after one lookup. A ripple's corners are
+    // at least 14 levels above its center.
+    private static final double EDGE_MIN_SPREAD = spread(EDGE_LEVELS + 1);
+    private static final double TEXTURE_MIN_SPREAD = spread(TEXTURE_LEVELS + 1);
+    private static final double RIPPLE_MIN_SPREAD = spread(14);
+    private static final int WINDOW_RADIUS = 2;
+    private static final int WINDOW_CELLS = (2 * WINDOW_RADIUS + 1) * (2 * WINDOW_RADIUS + 1);
+
+    // Color features: base stride 10
+    long brightnessTotal;
+    long blueTotal;
+    int waterLikePixels;
+    int colorSamples;
+
+    // Edge density: base stride 5, 5 pixel border
+    int edgePixels;
+    int edgeSamples;
+
+    // Texture complexity: neighbour differences, base stride 3, 3 pixel border
+    int textureDifferences;
+    int textureSamples;
+
+    // Reflection: left half against its mirror, base stride 5
+    double reflectionTotal;
+    int reflectionSamples;
+
+    // Color distribution: 4 levels per channel, base stride 5
+    final int[] colorHistogram = new int[64];
+    int histogramSamples;
+
+    // Horizontal lines: base stride 3 starting at 2
+    int horizontalLines;
+    int horizontalSamples;
+
+    // Vertical gradient: base stride 5, rows starting at 2
+    double verticalGradientTotal;
+    int verticalGradientSamples;
+
+    // Saturation: base stride 4
+    double saturationTotal;
+    int saturationSamples;
+
+    // Contrast: base stride 3
+    int minBrightness = 255;
+    int maxBrightness = 0;
+    int contrastSamples;
+
+    // Wave patterns: 6 pixel runs, base stride 4 starting at 3
+    int wavePatterns;
+    int waveSamples;
+
+    // Surface ripples: base stride 6, 5 pixel border
+    int ripples;
+    int rippleSamples;
+
+    // Depth perception: base stride 4, rows starting at 2
+    double depthTotal;
+    int depthSamples;
+
+    private final int[] waveLine = new int[6];
+
+    private final int colorStride;
+    private final int reflectionStride;
+    private final int histogramStride;
+    private final int edgeStride;
+    private final int contrastStride;
+    private final int textureStride;
+    private final int saturationStride;
+    private final int horizontalStride;
+    private final int verticalGradientStride;
+    private final int depthStride;
+    private final int waveStride;
+    private final int rippleStride;
+
+    FeatureAccumulator(SamplingPlan plan) {
+        colorStride = plan.stride(SamplingPlan.Grid.COLOR);
+        reflectionStride = plan.stride(SamplingPlan.Grid.REFLECTION);
+        histogramStride = plan.stride(SamplingPlan.Grid.COLOR_DISTRIBUTION);
+        edgeStride = plan.stride(SamplingPlan.Grid.EDGE);
+        contrastStride = plan.stride(SamplingPlan.Grid.CONTRAST);
+        textureStride = plan.stride(SamplingPlan.Grid.TEXTURE);
+        saturationStride = plan.stride(SamplingPlan.Grid.SATURATION);
+        horizontalStride = plan.stride(SamplingPlan.Grid.HORIZONTAL_LINES);
+        verticalGradientStride = plan.stride(SamplingPlan.Grid.VERTICAL_GRADIENT);
+        depthStride = plan.stride(SamplingPlan.Grid.DEPTH);
+        waveStride = plan.stride(SamplingPlan.Grid.WAVE);
+        rippleStride = plan.stride(SamplingPlan.Grid.RIPPLE);
+    }
+
+    void accumulateRow(ImagePlanes planes, int y) {
+        int[] argb = planes.pixels.argb;
+        LumaPlane luma = planes.luma;
+        IntegralImage integral = planes.integral;
+        int width = planes.pixels.width;
+        int height = planes.pixels.height;
+        int row = y * width;
+
+        if (y % colorStride == 0) {
+            for (int x = 0; x < width; x += colorStride) {
+                int rgb = argb[row + x];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+
+                // Accumulated into a long exactly as the original per-feature
+                // loop did, so only fully white samples contribute
+                double brightness = (0.299 * r + 0.587 * g + 0.114 * b) / 255.0;
+                brightnessTotal += brightness;
+                blueTotal += b;
+                if (isWaterLikeColor(r, g, b)) {
+                    waterLikePixels++;
+                }
+                colorSamples++;
+            }
+        }
+
+        if (y % reflectionStride == 0) {
+            for (int x = 0; x < width / 2; x += reflectionStride) {
+                reflectionTotal += calculateColorSimilarity(argb[row + x], argb[row + width - 1 - x]);
+                reflectionSamples++;
+            }
+        }
+
+        if (y % histogramStride == 0) {
+            for (int x = 0; x < width; x += histogramStride) {
+                colorHistogram[quantizeColor(argb[row + x])]++;
+                histogramSamples++;
+            }
+        }
+
+        if (y >= 5 && y < height - 5 && y % edgeStride == 0) {
+            for (int x = 5; x < width - 5; x += edgeStride) {
+                if (spreadAround(integral, x, y) >= EDGE_MIN_SPREAD && isEdgePixel(luma, width, row + x)) {
+                    edgePixels++;
+                }
+                edgeSamples++;
+            }
+        }
+
+        if (y % contrastStride == 0) {
+            for (int x = 0; x < width; x += contrastStride) {
+                int brightness = luma.at(row + x);
+                minBrightness = Math.min(minBrightness, brightness);
+                maxBrightness = Math.max(maxBrightness, brightness);
+                contrastSamples++;
+            }
+        }
+
+        if (y >= 3 && y < height - 3 && (y - 3) % textureStride == 0) {
+            for (int x = 3; x < width - 3; x += textureStride) {
+                if (spreadAround(integral, x, y) >= TEXTURE_MIN_SPREAD) {
+                    textureDifferences += countTextureDifferences(luma, width, row + x);
+                }
+                textureSamples++;
+            }
+        }
+
+        if (y % saturationStride == 0) {
+            for (int x = 0; x < width; x += saturationStride) {
+                saturationTotal += calculateSaturation(argb[row + x]);
+                saturationSamples++;
+            }
+        }
+
+        if (y >= 2 && y < height - 2) {
+            int above = row - width;
+            int below = row + width;
+
+            if ((y - 2) % horizontalStride == 0) {
+                for (int x = 2; x < width - 2; x += horizontalStride) {
+                    int center = argb[row + x];
+                    if (calculateColorSimilarity(center, argb[row + x - 1]) > 0.8
+                            && calculateColorSimilarity(center, argb[row + x + 1]) > 0.8) {
+                        horizontalLines++;
+                    }
+                    horizontalSamples++;
+                }
+            }
+
+            if ((y - 2) % verticalGradientStride == 0) {
+                for (int x = 0; x < width; x += verticalGradientStride) {
+                    int centerBrightness = luma.at(row + x);
+                    verticalGradientTotal += Math.abs(centerBrightness - luma.at(above + x))
+                            + Math.abs(centerBrightness - luma.at(below + x));
+                    verticalGradientSamples++;
+                }
+            }
+
+            if ((y - 2) % depthStride == 0) {
+                for (int x = 0; x < width; x += depthStride) {
+                    // Water creates depth through color gradients
+                    double topBlue = ((argb[above + x] >> 16) & 0xFF) / 255.0;
+                    double centerBlue = ((argb[row + x] >> 16) & 0xFF) / 255.0;
+                    double bottomBlue = ((argb[below + x] >> 16) & 0xFF) / 255.0;
+
+                    if (bottomBlue > centerBlue && centerBlue > topBlue) {
+                        depthTotal += 1.0;
+                    } else if (Math.abs(bottomBlue - topBlue) > 0.1) {
+                        depthTotal += 0.5;
+                    }
+                    depthSamples++;
+                }
+            }
+        }
+
+        if (y >= 3 && y < height - 3 && (y - 3) % waveStride == 0) {
+            for (int x = 3; x < width - 6; x += waveStride) {
+                for (int i = 0; i < waveLine.length; i++) {
+                    waveLine[i] = luma.at(row + x + i);
+                }
+                if (isWavePattern(waveLine)) {
+                    wavePatterns++;
+                }
+                waveSamples++;
+            }
+        }
+
+        if (y >= 5 && y < height - 5 && (y - 5) % rippleStride == 0) {
+            for (int x = 5; x < width - 5; x += rippleStride) {
+                if (spreadAround(integral, x, y) >= RIPPLE_MIN_SPREAD && isRipple(luma, width, row + x)) {
+                    ripples++;
+                }
+                rippleSamples++;
+            }
+        }
+    }
+
+    // Folds the totals of another band into this one
+    void merge(FeatureAccumulator other) {
+        brightnessTotal += other.brightnessTotal;
+        blueTotal += other.blueTotal;
+        waterLikePixels += other.waterLikePixels;
+        colorSamples += other.colorSamples;
+        edgePixels += other.edgePixels;
+        edgeSamples += other.edgeSamples;
+        textureDifferences += other.textureDifferences;
+        textureSamples += other.textureSamples;
+        reflectionTotal += other.reflectionTotal;
+        reflectionSamples += other.reflectionSamples;
+        for (int i = 0; i < colorHistogram.length; i++) {
+            colorHistogram[i] += other.colorHistogram[i];
+        }
+        histogramSamples += other.histogramSamples;
+        horizontalLines += other.horizontalLines;
+        horizontalSamples += other.horizontalSamples;
+        verticalGradientTotal += other.verticalGradientTotal;
+        verticalGradientSamples += other.verticalGradientSamples;
+        saturationTotal += other.saturationTotal;
+        saturationSamples += other.saturationSamples;
+        minBrightness = Math.min(minBrightness, other.minBrightness);
+        maxBrightness = Math.max(maxBrightness, other.maxBrightness);
+        contrastSamples += other.contrastSamples;
+        wavePatterns += other.wavePatterns;
+        waveSamples += other.waveSamples;
+        ripples += other.ripples;
+        rippleSamples += other.rippleSamples;
+        depthTotal += other.depthTotal;
+        depthSamples += other.depthSamples;
+    }
+
+    void writeTo(ImageAnalysisResult result) {
+        result.avgBrightness = colorSamples > 0 ? (double) brightnessTotal / colorSamples : 0.5;
+        result.blueRatio = colorSamples > 0 ? (double) blueTotal / (colorSamples * 255.0) : 0.0;
+        result.waterLikeRatio = colorSamples > 0 ? (double) waterLikePixels / colorSamples : 0.0;
+        result.edgeDensity = edgeSamples > 0 ? (double) edgePixels / edgeSamples : 0.0;
+        // 16 neighbours per sample over 8, as originally scaled: up to 2.0
+        result.textureComplexity = textureSamples > 0 ? textureDifferences / (textureSamples * 8.0) : 0.0;
+        result.reflectionScore = reflectionSamples > 0 ? reflectionTotal / reflectionSamples : 0.0;
+        result.colorDistribution = calculateColorEntropy();
+        result.horizontalLineDensity = horizontalSamples > 0 ? (double) horizontalLines / horizontalSamples : 0.0;
+        result.verticalGradient = verticalGradientSamples > 0
+                ? Math.min(1.0, verticalGradientTotal / (verticalGradientSamples * 100.0))
+                : 0.0;
+        result.saturationLevel = saturationSamples > 0 ? saturationTotal / saturationSamples : 0.0;
+        result.contrastLevel = (maxBrightness - minBrightness) / 255.0;
+        result.wavePatternScore = waveSamples > 0 ? (double) wavePatterns / waveSamples : 0.0;
+        result.surfaceRippleScore = rippleSamples > 0 ? (double) ripples / rippleSamples : 0.0;
+        result.depthPerceptionScore = depthSamples > 0 ? Math.min(1.0, depthTotal / depthSamples) : 0.0;
+
+        result.sampleCounts.put(SamplingPlan.Grid.COLOR.key, colorSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.REFLECTION.key, reflectionSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.COLOR_DISTRIBUTION.key, histogramSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.EDGE.key, edgeSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.CONTRAST.key, contrastSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.TEXTURE.key, textureSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.SATURATION.key, saturationSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.HORIZONTAL_LINES.key, horizontalSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.VERTICAL_GRADIENT.key, verticalGradientSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.DEPTH.key, depthSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.WAVE.key, waveSamples);
+        result.sampleCounts.put(SamplingPlan.Grid.RIPPLE.key, rippleSamples);
+    }
+
+    // The sample counts writeTo reports for an image of this size, without
+    // reading it: every grid above visits a fixed lattice of rows and columns
+    static void writeSampleCounts(SamplingPlan plan, int width, int height, Map<String, Integer> counts) {
+        counts.put(SamplingPlan.Grid.COLOR.key, lattice(plan, SamplingPlan.Grid.COLOR, 0, width, 0, height));
+        int reflectionStride = plan.stride(SamplingPlan.Grid.REFLECTION);
+        counts.put(SamplingPlan.Grid.REFLECTION.key,
+                steps(0, width / 2, reflectionStride) * steps(0, height, reflectionStride));
+        counts.put(SamplingPlan.Grid.COLOR_DISTRIBUTION.key,
+                lattice(plan, SamplingPlan.Grid.COLOR_DISTRIBUTION, 0, width, 0, height));
+        // Edge rows are multiples of the stride rather than offsets from the border
+        int edgeStride = plan.stride(SamplingPlan.Grid.EDGE);
+        counts.put(SamplingPlan.Grid.EDGE.key, steps(5, width - 5, edgeStride)
+                * Math.max(0, ceilDiv(height - 5, edgeStride) - ceilDiv(5, edgeStride)));
+        counts.put(SamplingPlan.Grid.CONTRAST.key, lattice(plan, SamplingPlan.Grid.CONTRAST, 0, width, 0, height));
+        counts.put(SamplingPlan.Grid.TEXTURE.key, lattice(plan, SamplingPlan.Grid.TEXTURE, 3, width - 3, 3, height - 3));
+        counts.put(SamplingPlan.Grid.SATURATION.key, lattice(plan, SamplingPlan.Grid.SATURATION, 0, width, 0, height));
+        counts.put(SamplingPlan.Grid.HORIZONTAL_LINES.key,
+                lattice(plan, SamplingPlan.Grid.HORIZONTAL_LINES, 2, width - 2, 2, height - 2));
+        counts.put(SamplingPlan.Grid.VERTICAL_GRADIENT.key,
+                lattice(plan, SamplingPlan.Grid.VERTICAL_GRADIENT, 0, width, 2, height - 2));
+        counts.put(SamplingPlan.Grid.DEPTH.key, lattice(plan, SamplingPlan.Grid.DEPTH, 0, width, 2, height - 2));
+        counts.put(SamplingPlan.Grid.WAVE.key, lattice(plan, SamplingPlan.Grid.WAVE, 3, width - 6, 3, height - 3));
+        counts.put(SamplingPlan.Grid.RIPPLE.key, lattice(plan, SamplingPlan.Grid.RIPPLE, 5, width - 5, 5, height - 5));
+    }
+
+    // Points of the grid's stride in [x0, x1) x [y0, y1), counted from the top left
+    private static int lattice(SamplingPlan plan, SamplingPlan.Grid grid, int x0, int x1, int y0, int y1) {
+        int stride = plan.stride(grid);
+        return steps(x0, x1, stride) * steps(y0, y1, stride);
+    }
+
+    // Values from, from + stride, ... below to
+    private static int steps(int from, int to, int stride) {
+        return to > from ? ceilDiv(to - from, stride) : 0;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private double calculateColorEntropy() {
+        double entropy = 0.0;
+        for (int count : colorHistogram) {
+            if (count > 0) {
+                double probability = (double) count / histogramSamples;
+                entropy -= probability * Math.log(probability) / Math.log(2);
+            }
+        }
+        return Math.min(1.0, entropy / 8.0); // Normalize to 0-1
+    }
+
+    // Summed squared deviation of the 5x5 window around (x, y)
+    private static double spreadAround(IntegralImage integral, int x, int y) {
+        return integral.varianceAround(x, y, WINDOW_RADIUS) * WINDOW_CELLS;
+    }
+
+    // Rounding slack below d^2 / 2 for the variance read back from the integral image
+    private static double spread(int levels) {
+        return levels * levels / 2.0 - 0.5;
+    }
+
+    private static boolean isEdgePixel(LumaPlane luma, int width, int center) {
+        int brightness = luma.at(center);
+        for (int dy : NEIGHBOUR_OFFSETS) {
+            int row = center + dy * width;
+            for (int dx : NEIGHBOUR_OFFSETS) {
+                if (Math.abs(brightness - luma.at(row + dx)) > EDGE_LEVELS) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int countTextureDifferences(LumaPlane luma, int width, int center) {
+        int brightness = luma.at(center);
+        int differences = 0;
+        for (int dy : NEIGHBOUR_OFFSETS) {
+            int row = center + dy * width;
+            for (int dx : NEIGHBOUR_OFFSETS) {
+                if (Math.abs(brightness - luma.at(row + dx)) > TEXTURE_LEVELS) {
+                    differences++;
+                }
+            }
+        }
+        return differences;
+    }
+
+    private static boolean isRipple(LumaPlane luma, int width, int center) {
+        int brightness = luma.at(center);
+        int i = 0;
+        for (int dx : NEIGHBOUR_OFFSETS) {
+            for (int dy : NEIGHBOUR_OFFSETS) {
+                double expected = brightness + RIPPLE_RISE[i++];
+                if (Math.abs(luma.at(center + dy * width + dx) - expected) > RIPPLE_TOLERANCE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double[] rippleRise() {
+        double[] rise = new double[NEIGHBOUR_OFFSETS.length * NEIGHBOUR_OFFSETS.length];
+        int i = 0;
+        for (int dx : NEIGHBOUR_OFFSETS) {
+            for (int dy : NEIGHBOUR_OFFSETS) {
+                rise[i++] = Math.sqrt(dx * dx + dy * dy) * RIPPLE_SLOPE_LEVELS;
+            }
+        }
+        return rise;
+    }
+
+    static boolean isWaterLikeColor(int r, int g, int b) {
+        // Ultra-sensitive water-like color detection for high tide and storm tide
+
+        // Blue dominant (strong indicator of water) - more sensitive
+        if (b > r && b > g && b > 60) {
+            return true;
+        }
+
+        // Cyan (blue + green) - ultra sensitive
+        if (b > 50 && g > 50 && r < Math.min(b, g) - 10) {
+            return true;
+        }
+
+        // Teal (blue + green, balanced) - ultra sensitive
+        if (b > 40 && g > 40 && Math.abs(b - g) < 50 && r < Math.min(b, g)) {
+            return true;
+        }
+
+        // Dark blue/indigo (deep water) - more sensitive
+        if (b > 40 && r < 60 && g < 60) {
+            return true;
+        }
+
+        // Light blue/azure (shallow water) - more sensitive
+        if (b > 80 && r < 100 && g < 140 && b > r + 10) {
+            return true;
+        }
+
+        // Gray-blue (overcast water) - more sensitive
+        if (b > 40 && Math.abs(r - g) < 30 && Math.abs(g - b) < 30 && b > r) {
+            return true;
+        }
+
+        // Green-blue (algae water) - more sensitive
+        if (g > 40 && b > 40 && r < Math.min(g, b) - 5 && Math.abs(g - b) < 40) {
+            return true;
+        }
+
+        // Storm water (dark, murky) - new category
+        if (b > 30 && g > 30 && r < 50 && Math.abs(b - g) < 20) {
+            return true;
+        }
+
+        // High tide water (reflective, silvery) - new category
+        if (b > 50 && g > 50 && r > 40 && Math.abs(b - g) < 15 && Math.abs(g - r) < 15) {
+            return true;
+        }
+
+        // Any blue dominance - ultra sensitive
+        if (b > r + 20 && b > g + 20) {
+            return true;
+        }
+
+        return false;
+    }
+
+    static double calculateColorSimilarity(int rgb1, int rgb2) {
+        int r1 = (rgb1 >> 16) & 0xFF;
+        int g1 = (rgb1 >> 8) & 0xFF;
+        int b1 = rgb1 & 0xFF;
+
+        int r2 = (rgb2 >> 16) & 0xFF;
+        int g2 = (rgb2 >> 8) & 0xFF;
+        int b2 = rgb2 & 0xFF;
+
+        double distance = Math.sqrt((r1 - r2) * (r1 - r2) + (g1 - g2) * (g1 - g2) + (b1 - b2) * (b1 - b2));
+        return Math.max(0.0, 1.0 - distance / 441.67); // 441.67 is max distance for RGB
+    }
+
+    // Quantize to 4 levels per channel, packed as a 6 bit histogram index
+    static int quantizeColor(int rgb) {
+        int r = (rgb >> 22) & 0x3;
+        int g = (rgb >> 14) & 0x3;
+        int b = (rgb >> 6) & 0x3;
+        return (r << 4) | (g << 2) | b;
+    }
+
+    static double calculateSaturation(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+
+        if (max == 0)
+            return 0.0;
+        return (double) (max - min) / max;
+    }
+
+    static boolean isWavePattern(int[] brightness) {
+        if (brightness.length < 4)
+            return false;
+
+        // Enhanced wave pattern detection for high tide
+        int changes = 0;
+        int significantChanges = 0;
+        boolean increasing = brightness[1] > brightness[0];
+
+        for (int i = 1; i < brightness.length - 1; i++) {
+            boolean currentIncreasing = brightness[i + 1] > brightness[i];
+            int brightnessDiff = Math.abs(brightness[i + 1] - brightness[i]);
+
+            if (currentIncreasing != increasing) {
+                changes++;
+                if (brightnessDiff > 15) { // Significant brightness change
+                    significantChanges++;
+                }
+                increasing = currentIncreasing;
+            }
+        }
+
+        // At least 1 change with significant brightness difference
+        return changes >= 1 && significantChanges >= 1;
+    }
+}
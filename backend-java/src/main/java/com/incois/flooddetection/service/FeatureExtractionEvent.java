@@ -0,0 +1,63 @@
+package com.incois.flooddetection.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR event for the feature extraction of one image, with the time of each
+// of its passes. The features themselves are accumulated together in one
+// pass over the planes, so that pass is the finest split there is.
+@Name("com.incois.flooddetection.FeatureExtraction")
+@Label("Feature Extraction")
+@Category({ "Flood Detection" })
+@Description("Pixel unpacking, perceptual hash, plane derivation and feature accumulation of an image")
+@Enabled(false)
+@StackTrace(false)
+class FeatureExtractionEvent extends Event {
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Near Duplicate")
+    @Description("The result of an indexed near-duplicate was reused; later passes did not run")
+    boolean nearDuplicate;
+
+    @Label("Unpack")
+    @Timespan
+    long unpack;
+
+    @Label("Perceptual Hash")
+    @Timespan
+    long perceptualHash;
+
+    @Label("Derive Planes")
+    @Timespan
+    long derivePlanes;
+
+    @Label("Features")
+    @Timespan
+    long features;
+
+    // Pass durations come from the trace; passes that did not run are 0
+    void finish(ImagePlanes planes, boolean nearDuplicate, DetectionTrace trace) {
+        end();
+        if (shouldCommit()) {
+            this.width = planes.luma.width;
+            this.height = planes.luma.height;
+            this.nearDuplicate = nearDuplicate;
+            this.unpack = Math.max(0, trace.nanos(DetectionTrace.Stage.UNPACK));
+            this.perceptualHash = Math.max(0, trace.nanos(DetectionTrace.Stage.PERCEPTUAL_HASH));
+            this.derivePlanes = Math.max(0, trace.nanos(DetectionTrace.Stage.DERIVE_PLANES));
+            this.features = Math.max(0, trace.nanos(DetectionTrace.Stage.FEATURES));
+            commit();
+        }
+    }
+}
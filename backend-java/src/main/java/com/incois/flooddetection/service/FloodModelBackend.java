@@ -0,0 +1,40 @@
+package com.incois.flooddetection.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Turns an analysed image into class probabilities, at least "Flooded Scene"
+// and "Non Flooded". One implementation is active per deployment, chosen by
+// app.model.backend; FloodModelService times every call and, when batching is
+// on, groups concurrent calls into predictBatch.
+interface FloodModelBackend {
+
+    // Reported by the health endpoint
+    String name();
+
+    // Planes hold the unpacked pixels of the (possibly subsampled) image and
+    // are only valid for the duration of the call
+    Map<String, Double> predict(ImagePlanes planes, ImageAnalysisResult analysis) throws Exception;
+
+    // Backend-specific figures for the health endpoint, or null
+    default Map<String, Object> details() {
+        return null;
+    }
+
+    // Largest batch predictBatch accepts
+    default int maxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    // One prediction per image, in order. Backends that evaluate several
+    // images in one pass (a batched tensor) override this.
+    default List<Map<String, Double>> predictBatch(List<ImagePlanes> planes, List<ImageAnalysisResult> analyses)
+            throws Exception {
+        List<Map<String, Double>> predictions = new ArrayList<>(planes.size());
+        for (int i = 0; i < planes.size(); i++) {
+            predictions.add(predict(planes.get(i), analyses.get(i)));
+        }
+        return predictions;
+    }
+}
@@ -0,0 +1,239 @@
+package com.incois.flooddetection.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs the configured FloodModelBackend and keeps its latency figures. With
+// app.model.batching.enabled, concurrent predictions are grouped into batches
+// by a MicroBatcher instead of running one by one.
+@Service
+public class FloodModelService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FloodModelService.class);
+
+    @Autowired
+    private FloodModelBackend backend;
+
+    @Autowired
+    private DetectionMetrics metrics;
+
+    @Value("${app.model.batching.enabled:false}")
+    private boolean batchingEnabled;
+
+    // Capped further by what the backend accepts
+    @Value("${app.model.batching.max-batch-size:8}")
+    private int maxBatchSize;
+
+    // Longest an image waits for others to join its batch
+    @Value("${app.model.batching.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    // Images waiting for a batch; more are shed with 503
+    @Value("${app.model.batching.queue-capacity:64}")
+    private int queueCapacity;
+
+    // Batches run at the same time
+    @Value("${app.model.batching.workers:2}")
+    private int workers;
+
+    private MicroBatcher batcher;
+
+    private final LongAdder inferences = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (batchingEnabled) {
+            int batchSize = Math.max(1, Math.min(maxBatchSize, backend.maxBatchSize()));
+            batcher = new MicroBatcher(backend, batchSize, maxWaitMs, queueCapacity, workers);
+            metrics.gauge("detection.inference.queued", "Images waiting for an inference batch",
+                    batcher, MicroBatcher::queued);
+            logger.info("Inference batching: up to {} images per batch, {} ms max wait, {} workers",
+                    batchSize, maxWaitMs, workers);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    // With batching, the latency is that of the whole batch the image ran in
+    Inference predict(ImagePlanes planes, ImageAnalysisResult analysis) throws Exception {
+        Inference inference;
+        try {
+            if (batcher != null) {
+                inference = batcher.predict(planes, analysis);
+            } else {
+                long start = System.nanoTime();
+                Map<String, Double> prediction = backend.predict(planes, analysis);
+                inference = new Inference(prediction, System.nanoTime() - start);
+            }
+        } catch (DetectionOverloadedException e) {
+            throw e;
+        } catch (Exception e) {
+            failures.increment();
+            throw e;
+        }
+        inferences.increment();
+        totalNanos.add(inference.nanos);
+        maxNanos.accumulateAndGet(inference.nanos, Math::max);
+        logger.debug("{} inference took {} us", backend.name(), inference.nanos / 1000);
+        return inference;
+    }
+
+    public String getModelName() {
+        return backend.name();
+    }
+
+    // The model that made this inference's prediction: the backend, or the
+    // stand-in it fell back to
+    String modelNameOf(Inference inference) {
+        return inference.fallback ? ((FallbackPrediction) inference.prediction).model : backend.name();
+    }
+
+    // Null unless batching is enabled
+    MicroBatcher batcher() {
+        return batcher;
+    }
+
+    public Stats stats() {
+        long count = inferences.sum();
+        return new Stats(backend.name(), count, failures.sum(),
+                count == 0 ? 0.0 : totalNanos.sum() / 1e6 / count, maxNanos.get() / 1e6,
+                batcher != null ? batcher.stats() : null, backend.details());
+    }
+
+    // One prediction and how long the backend took for it
+    static class Inference {
+        final Map<String, Double> prediction;
+        final long nanos;
+        // The backend could not answer and a stand-in model did, see FallbackPrediction
+        final boolean fallback;
+
+        Inference(Map<String, Double> prediction, long nanos) {
+            this.prediction = prediction;
+            this.nanos = nanos;
+            this.fallback = prediction instanceof FallbackPrediction;
+        }
+    }
+
+    public static class Stats {
+        private final String backend;
+        private final long inferences;
+        private final long failures;
+        private final double averageMillis;
+        private final double maxMillis;
+        private final BatchingStats batching;
+        private final Map<String, Object> details;
+
+        Stats(String backend, long inferences, long failures, double averageMillis, double maxMillis,
+                BatchingStats batching, Map<String, Object> details) {
+            this.backend = backend;
+            this.inferences = inferences;
+            this.failures = failures;
+            this.averageMillis = averageMillis;
+            this.maxMillis = maxMillis;
+            this.batching = batching;
+            this.details = details;
+        }
+
+        public String getBackend() {
+            return backend;
+        }
+
+        public long getInferences() {
+            return inferences;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public double getAverageMillis() {
+            return averageMillis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        // Null when batching is off
+        public BatchingStats getBatching() {
+            return batching;
+        }
+
+        // Backend-specific, e.g. breaker state and hedging for the remote backend
+        public Map<String, Object> getDetails() {
+            return details;
+        }
+    }
+
+    public static class BatchingStats {
+        private final int maxBatchSize;
+        private final long maxWaitMillis;
+        private final int queued;
+        private final long batches;
+        private final double averageBatchSize;
+        private final double averageQueueMillis;
+        private final Map<Integer, Long> batchSizes = new LinkedHashMap<>();
+
+        BatchingStats(int maxBatchSize, long maxWaitMillis, int queued, long batches, double averageBatchSize,
+                double averageQueueMillis, long[] batchSizeCounts) {
+            this.maxBatchSize = maxBatchSize;
+            this.maxWaitMillis = maxWaitMillis;
+            this.queued = queued;
+            this.batches = batches;
+            this.averageBatchSize = averageBatchSize;
+            this.averageQueueMillis = averageQueueMillis;
+            for (int size = 1; size < batchSizeCounts.length; size++) {
+                if (batchSizeCounts[size] > 0) {
+                    batchSizes.put(size, batchSizeCounts[size]);
+                }
+            }
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public double getAverageBatchSize() {
+            return averageBatchSize;
+        }
+
+        public double getAverageQueueMillis() {
+            return averageQueueMillis;
+        }
+
+        // Achieved batch sizes and how many batches had each
+        public Map<Integer, Long> getBatchSizes() {
+            return batchSizes;
+        }
+    }
+}
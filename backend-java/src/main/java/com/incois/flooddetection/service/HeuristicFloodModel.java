@@ -0,0 +1,385 @@
+package com.incois.flooddetection.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The original rule-based scorer: weighs the colour, surface, edge, texture
+// and lighting features of ImageAnalysisResult into a flood probability.
+// Needs no model file; the default backend.
+@Service
+@ConditionalOnProperty(name = "app.model.backend", havingValue = "heuristic", matchIfMissing = true)
+class HeuristicFloodModel implements FloodModelBackend {
+
+    @Override
+    public String name() {
+        return "heuristic";
+    }
+
+    @Override
+    public Map<String, Double> predict(ImagePlanes planes, ImageAnalysisResult analysis) {
+        // Advanced flood detection using sophisticated computer vision techniques
+        // Multi-layered analysis for accurate flood detection
+
+        Map<String, Double> prediction = new HashMap<>();
+
+        // Advanced flood detection algorithm with multiple validation layers
+        double floodedProb = calculateAdvancedFloodProbability(analysis);
+        double nonFloodedProb = 1.0 - floodedProb;
+
+        prediction.put("Flooded Scene", Math.round(floodedProb * 1000.0) / 1000.0);
+        prediction.put("Non Flooded", Math.round(nonFloodedProb * 1000.0) / 1000.0);
+
+        return prediction;
+    }
+
+    private double calculateAdvancedFloodProbability(ImageAnalysisResult analysis) {
+        double floodScore = 0.0;
+
+        // Balanced scoring for 30% image processing weight in final calculation
+        // Layer 1: Water Color Dominance (35% weight) - Most critical for tide
+        // detection
+        double colorScore = calculateUltraSensitiveColorScore(analysis);
+        floodScore += colorScore * 0.35;
+
+        // Layer 2: Water Surface Characteristics (25% weight)
+        double surfaceScore = calculateWaterSurfaceScore(analysis);
+        floodScore += surfaceScore * 0.25;
+
+        // Layer 3: High Tide Specific Features (20% weight)
+        double highTideScore = calculateHighTideFeatures(analysis);
+        floodScore += highTideScore * 0.20;
+
+        // Layer 4: Edge and Boundary Analysis (15% weight)
+        double edgeScore = calculateEdgeAnalysisScore(analysis);
+        floodScore += edgeScore * 0.15;
+
+        // Layer 5: Lighting and Reflection (5% weight)
+        double lightingScore = calculateLightingAnalysisScore(analysis);
+        floodScore += lightingScore * 0.05;
+
+        // Apply confidence weighting based on image quality
+        double imageQuality = calculateImageQuality(analysis);
+        floodScore *= imageQuality;
+
+        // Boost score for high tide scenarios
+        if (isHighTideScenario(analysis)) {
+            floodScore = Math.min(0.95, floodScore * 1.2); // 20% boost for high tide (reduced from 30%)
+        }
+
+        return Math.max(0.01, Math.min(0.99, floodScore));
+    }
+
+    private boolean isHighTideScenario(ImageAnalysisResult analysis) {
+        // Detect high tide scenarios based on multiple indicators
+        int indicators = 0;
+
+        // High blue content
+        if (analysis.blueRatio > 0.3)
+            indicators++;
+
+        // High water-like colors
+        if (analysis.waterLikeRatio > 0.4)
+            indicators++;
+
+        // Low texture complexity (smooth water surface)
+        if (analysis.textureComplexity < 0.5)
+            indicators++;
+
+        // Low edge density (smooth water)
+        if (analysis.edgeDensity < 0.3)
+            indicators++;
+
+        // Some wave patterns
+        if (analysis.wavePatternScore > 0.2)
+            indicators++;
+
+        // Some surface ripples
+        if (analysis.surfaceRippleScore > 0.2)
+            indicators++;
+
+        // Good reflection
+        if (analysis.reflectionScore > 0.3)
+            indicators++;
+
+        return indicators >= 4; // At least 4 indicators suggest high tide
+    }
+
+    private double calculateUltraSensitiveColorScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Ultra-sensitive blue detection for high tide
+        if (analysis.blueRatio > 0.4) {
+            score += 0.6; // Very high blue content
+        } else if (analysis.blueRatio > 0.25) {
+            score += 0.5; // High blue content
+        } else if (analysis.blueRatio > 0.15) {
+            score += 0.4; // Moderate blue content
+        } else if (analysis.blueRatio > 0.08) {
+            score += 0.3; // Some blue content
+        } else if (analysis.blueRatio > 0.03) {
+            score += 0.2; // Minimal blue content
+        }
+
+        // Ultra-sensitive water-like colors
+        if (analysis.waterLikeRatio > 0.6) {
+            score += 0.4; // Very high water-like colors
+        } else if (analysis.waterLikeRatio > 0.4) {
+            score += 0.35; // High water-like colors
+        } else if (analysis.waterLikeRatio > 0.25) {
+            score += 0.3; // Moderate water-like colors
+        } else if (analysis.waterLikeRatio > 0.15) {
+            score += 0.25; // Some water-like colors
+        } else if (analysis.waterLikeRatio > 0.08) {
+            score += 0.2; // Minimal water-like colors
+        }
+
+        // Saturation patterns (water has specific saturation)
+        if (analysis.saturationLevel > 0.1 && analysis.saturationLevel < 0.95) {
+            score += 0.2; // Water has moderate saturation
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateEnhancedColorScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Enhanced blue detection for high tide (more aggressive thresholds)
+        if (analysis.blueRatio > 0.6) {
+            score += 0.5; // Very high blue content
+        } else if (analysis.blueRatio > 0.45) {
+            score += 0.4; // High blue content
+        } else if (analysis.blueRatio > 0.3) {
+            score += 0.3; // Moderate blue content
+        } else if (analysis.blueRatio > 0.2) {
+            score += 0.2; // Some blue content
+        }
+
+        // Water-like colors (blues, cyans, teals) - more sensitive
+        if (analysis.waterLikeRatio > 0.8) {
+            score += 0.5; // Very high water-like colors
+        } else if (analysis.waterLikeRatio > 0.6) {
+            score += 0.4; // High water-like colors
+        } else if (analysis.waterLikeRatio > 0.4) {
+            score += 0.3; // Moderate water-like colors
+        } else if (analysis.waterLikeRatio > 0.25) {
+            score += 0.2; // Some water-like colors
+        }
+
+        // Saturation patterns specific to water
+        if (analysis.saturationLevel > 0.2 && analysis.saturationLevel < 0.9) {
+            score += 0.2; // Water has moderate saturation
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateWaterSurfaceScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Low texture complexity (water surfaces are smooth)
+        if (analysis.textureComplexity < 0.2) {
+            score += 0.4; // Very smooth surface
+        } else if (analysis.textureComplexity < 0.4) {
+            score += 0.3; // Smooth surface
+        } else if (analysis.textureComplexity < 0.6) {
+            score += 0.2; // Moderately smooth
+        }
+
+        // Low edge density (water has fewer sharp edges)
+        if (analysis.edgeDensity < 0.05) {
+            score += 0.4; // Very few edges
+        } else if (analysis.edgeDensity < 0.15) {
+            score += 0.3; // Few edges
+        } else if (analysis.edgeDensity < 0.25) {
+            score += 0.2; // Some edges
+        }
+
+        // Wave patterns (strong indicator of water)
+        if (analysis.wavePatternScore > 0.7) {
+            score += 0.2; // Strong wave patterns
+        } else if (analysis.wavePatternScore > 0.5) {
+            score += 0.15; // Moderate wave patterns
+        } else if (analysis.wavePatternScore > 0.3) {
+            score += 0.1; // Some wave patterns
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateHighTideFeatures(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Surface ripples (common in high tide)
+        if (analysis.surfaceRippleScore > 0.8) {
+            score += 0.4; // Strong ripple patterns
+        } else if (analysis.surfaceRippleScore > 0.6) {
+            score += 0.3; // Moderate ripples
+        } else if (analysis.surfaceRippleScore > 0.4) {
+            score += 0.2; // Some ripples
+        }
+
+        // Depth perception (water creates depth illusions)
+        if (analysis.depthPerceptionScore > 0.7) {
+            score += 0.3; // Strong depth effect
+        } else if (analysis.depthPerceptionScore > 0.5) {
+            score += 0.2; // Moderate depth effect
+        } else if (analysis.depthPerceptionScore > 0.3) {
+            score += 0.1; // Some depth effect
+        }
+
+        // Horizontal line density (water often has horizontal patterns)
+        if (analysis.horizontalLineDensity > 0.6) {
+            score += 0.3; // Strong horizontal patterns
+        } else if (analysis.horizontalLineDensity > 0.4) {
+            score += 0.2; // Moderate horizontal patterns
+        } else if (analysis.horizontalLineDensity > 0.2) {
+            score += 0.1; // Some horizontal patterns
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateEdgeAnalysisScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Vertical gradient (water often has depth gradients)
+        if (analysis.verticalGradient > 0.5) {
+            score += 0.4; // Strong vertical gradient
+        } else if (analysis.verticalGradient > 0.3) {
+            score += 0.3; // Moderate vertical gradient
+        } else if (analysis.verticalGradient > 0.15) {
+            score += 0.2; // Some vertical gradient
+        }
+
+        // Color distribution patterns
+        if (analysis.colorDistribution > 0.7) {
+            score += 0.3; // High color distribution
+        } else if (analysis.colorDistribution > 0.5) {
+            score += 0.2; // Moderate color distribution
+        } else if (analysis.colorDistribution > 0.3) {
+            score += 0.1; // Some color distribution
+        }
+
+        // Contrast level (water has specific contrast patterns)
+        if (analysis.contrastLevel > 0.3 && analysis.contrastLevel < 0.8) {
+            score += 0.3; // Good contrast for water detection
+        } else if (analysis.contrastLevel > 0.2) {
+            score += 0.2; // Moderate contrast
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateTextureAnalysisScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Low texture complexity (water surfaces are relatively smooth)
+        if (analysis.textureComplexity < 0.3) {
+            score += 0.3;
+        } else if (analysis.textureComplexity < 0.5) {
+            score += 0.2;
+        }
+
+        // Low edge density (water has fewer sharp edges)
+        if (analysis.edgeDensity < 0.1) {
+            score += 0.4;
+        } else if (analysis.edgeDensity < 0.2) {
+            score += 0.3;
+        }
+
+        // Wave patterns
+        if (analysis.wavePatternScore > 0.6) {
+            score += 0.3;
+        } else if (analysis.wavePatternScore > 0.4) {
+            score += 0.2;
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateWaterFeatureScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Surface ripples
+        if (analysis.surfaceRippleScore > 0.7) {
+            score += 0.4;
+        } else if (analysis.surfaceRippleScore > 0.5) {
+            score += 0.3;
+        }
+
+        // Depth perception (water creates depth illusions)
+        if (analysis.depthPerceptionScore > 0.6) {
+            score += 0.3;
+        } else if (analysis.depthPerceptionScore > 0.4) {
+            score += 0.2;
+        }
+
+        // Horizontal line density (water often has horizontal patterns)
+        if (analysis.horizontalLineDensity > 0.5) {
+            score += 0.3;
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateSpatialAnalysisScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Vertical gradient (water often has depth gradients)
+        if (analysis.verticalGradient > 0.4) {
+            score += 0.5;
+        } else if (analysis.verticalGradient > 0.2) {
+            score += 0.3;
+        }
+
+        // Color distribution patterns
+        if (analysis.colorDistribution > 0.6) {
+            score += 0.5;
+        } else if (analysis.colorDistribution > 0.4) {
+            score += 0.3;
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateLightingAnalysisScore(ImageAnalysisResult analysis) {
+        double score = 0.0;
+
+        // Reflection score (water reflects light)
+        if (analysis.reflectionScore > 0.6) {
+            score += 0.6;
+        } else if (analysis.reflectionScore > 0.4) {
+            score += 0.4;
+        }
+
+        // Brightness patterns (water has specific lighting characteristics)
+        if (analysis.avgBrightness > 0.3 && analysis.avgBrightness < 0.8) {
+            score += 0.4;
+        }
+
+        return Math.min(1.0, score);
+    }
+
+    private double calculateImageQuality(ImageAnalysisResult analysis) {
+        // Calculate image quality based on contrast and clarity
+        double quality = 0.5; // Base quality
+
+        if (analysis.contrastLevel > 0.3) {
+            quality += 0.2;
+        }
+
+        if (analysis.avgBrightness > 0.2 && analysis.avgBrightness < 0.9) {
+            quality += 0.2;
+        }
+
+        if (analysis.saturationLevel > 0.1) {
+            quality += 0.1;
+        }
+
+        return Math.min(1.0, quality);
+    }
+}
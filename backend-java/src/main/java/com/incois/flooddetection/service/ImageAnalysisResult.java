@@ -0,0 +1,47 @@
+package com.incois.flooddetection.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Feature vector produced by ImageFeatureExtractor and scored by FloodDetectionService
+class ImageAnalysisResult {
+    double avgBrightness;
+    double blueRatio;
+    double waterLikeRatio;
+    double edgeDensity;
+    double textureComplexity;
+    double reflectionScore;
+    double colorDistribution;
+    double horizontalLineDensity;
+    double verticalGradient;
+    double saturationLevel;
+    double contrastLevel;
+    double wavePatternScore;
+    double surfaceRippleScore;
+    double depthPerceptionScore;
+
+    // Diagnostics: analysed resolution and effective samples per feature grid
+    int width;
+    int height;
+    final Map<String, Integer> sampleCounts = new LinkedHashMap<>();
+
+    // The feature values only, with empty diagnostics
+    ImageAnalysisResult copyFeatures() {
+        ImageAnalysisResult copy = new ImageAnalysisResult();
+        copy.avgBrightness = avgBrightness;
+        copy.blueRatio = blueRatio;
+        copy.waterLikeRatio = waterLikeRatio;
+        copy.edgeDensity = edgeDensity;
+        copy.textureComplexity = textureComplexity;
+        copy.reflectionScore = reflectionScore;
+        copy.colorDistribution = colorDistribution;
+        copy.horizontalLineDensity = horizontalLineDensity;
+        copy.verticalGradient = verticalGradient;
+        copy.saturationLevel = saturationLevel;
+        copy.contrastLevel = contrastLevel;
+        copy.wavePatternScore = wavePatternScore;
+        copy.surfaceRippleScore = surfaceRippleScore;
+        copy.depthPerceptionScore = depthPerceptionScore;
+        return copy;
+    }
+}
@@ -0,0 +1,61 @@
+package com.incois.flooddetection.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event for reading an upload's header and decoding its pixels. Like the
+// other detection events it is off unless a recording enables it, see
+// jfr/flood-detection.jfc.
+@Name("com.incois.flooddetection.ImageDecode")
+@Label("Image Decode")
+@Category({ "Flood Detection" })
+@Description("Header read, admission check and subsampled decode of an upload")
+@Enabled(false)
+@StackTrace(false)
+class ImageDecodeEvent extends Event {
+
+    @Label("Format")
+    String format;
+
+    @Label("Source Width")
+    int sourceWidth;
+
+    @Label("Source Height")
+    int sourceHeight;
+
+    @Label("Decoded Width")
+    int width;
+
+    @Label("Decoded Height")
+    int height;
+
+    @Label("Subsampling")
+    int subsampling;
+
+    @Label("Upload Size")
+    @DataAmount
+    long uploadBytes;
+
+    // decoded is null for unreadable images; uploadBytes is -1 when unknown
+    void finish(DecodedImage decoded, long uploadBytes) {
+        end();
+        if (shouldCommit()) {
+            if (decoded != null) {
+                this.format = decoded.format;
+                this.sourceWidth = decoded.sourceWidth;
+                this.sourceHeight = decoded.sourceHeight;
+                this.width = decoded.image.getWidth();
+                this.height = decoded.image.getHeight();
+                this.subsampling = decoded.subsampling;
+            }
+            this.uploadBytes = uploadBytes;
+            commit();
+        }
+    }
+}
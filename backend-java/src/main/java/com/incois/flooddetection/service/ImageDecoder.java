@@ -0,0 +1,154 @@
+package com.incois.flooddetection.service;
+
+import com.incois.flooddetection.model.ImagePayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+@Service
+public class ImageDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDecoder.class);
+
+    // Features sample every 3rd to 10th pixel, so decoding far beyond this
+    // resolution only costs time and heap
+    @Value("${app.image.decode.target-pixels:2000000}")
+    private long targetPixels;
+
+    // Largest encoded upload accepted (base64 JSON bodies are not covered by
+    // the multipart limits)
+    @Value("${app.image.max-upload-bytes:10485760}")
+    private long maxUploadBytes;
+
+    // Headers claiming more than this are rejected outright; a small, highly
+    // compressed PNG can otherwise claim a gigantic canvas
+    @Value("${app.image.max-pixels:200000000}")
+    private long maxPixels;
+
+    @Value("${app.image.max-dimension:20000}")
+    private int maxDimension;
+
+    // Heap the decoded raster may take; larger images are subsampled further
+    @Value("${app.image.max-decoded-bytes:33554432}")
+    private long maxDecodedBytes;
+
+    void checkUploadSize(long bytes) throws ImageRejectedException {
+        if (bytes > maxUploadBytes) {
+            throw new ImageRejectedException(
+                    String.format("Image is %d bytes, limit is %d bytes", bytes, maxUploadBytes));
+        }
+    }
+
+    // Buffers a streamed upload, cutting it off at the upload limit
+    ImagePayload buffer(InputStream imageStream) throws IOException {
+        return ImagePayload.read(new UploadLimitInputStream(imageStream, maxUploadBytes));
+    }
+
+    DecodedImage decode(byte[] imageBytes) throws IOException {
+        checkUploadSize(imageBytes.length);
+        return decode(new ByteArrayInputStream(imageBytes));
+    }
+
+    // Reads the header first and admits the image against the configured
+    // limits, then decodes straight to a bounded resolution using source
+    // subsampling. Returns null for unknown formats.
+    DecodedImage decode(InputStream imageStream) throws IOException {
+        // Cache in memory rather than ImageIO's default temp file; the limit
+        // stops a streamed upload as soon as it grows past the allowed size
+        InputStream limited = new UploadLimitInputStream(imageStream, maxUploadBytes);
+        try (ImageInputStream input = new MemoryCacheImageInputStream(limited)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageHeader header = readHeader(reader);
+                admit(header);
+                int subsampling = subsamplingFactor(header);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+
+                logger.info("Decoded {} image {}x{} at 1/{} -> {}x{}", header.format, header.width, header.height,
+                        subsampling, image.getWidth(), image.getHeight());
+                return new DecodedImage(image, header.format, header.width, header.height, subsampling);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            // Readers wrap stream failures in IIOException; keep a limit
+            // violation visible as a rejection
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ImageRejectedException) {
+                    throw (ImageRejectedException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    private ImageHeader readHeader(ImageReader reader) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+
+        // The raw type is not always known up front (e.g. CMYK JPEGs); assume
+        // the worst case of 4 bands of 8 bits when it is not
+        int bands = 4;
+        int bitsPerPixel = 32;
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        if (type == null) {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            type = types.hasNext() ? types.next() : null;
+        }
+        if (type != null) {
+            bands = type.getNumBands();
+            bitsPerPixel = type.getColorModel().getPixelSize();
+        }
+        return new ImageHeader(reader.getFormatName().toLowerCase(), width, height, bands, bitsPerPixel);
+    }
+
+    private void admit(ImageHeader header) throws ImageRejectedException {
+        if (header.width <= 0 || header.height <= 0) {
+            throw new ImageRejectedException("Image has no pixels");
+        }
+        if (header.width > maxDimension || header.height > maxDimension) {
+            throw new ImageRejectedException(String.format("Image is %dx%d, limit is %d pixels per side",
+                    header.width, header.height, maxDimension));
+        }
+        if (header.pixels() > maxPixels) {
+            throw new ImageRejectedException(String.format("Image has %d pixels, limit is %d",
+                    header.pixels(), maxPixels));
+        }
+    }
+
+    // Smallest factor that meets both the resolution target and the heap cap
+    private int subsamplingFactor(ImageHeader header) {
+        int subsampling = 1;
+        if (targetPixels > 0 && header.pixels() > targetPixels) {
+            subsampling = (int) Math.ceil(Math.sqrt((double) header.pixels() / targetPixels));
+        }
+        while (maxDecodedBytes > 0 && header.decodedBytes(subsampling) > maxDecodedBytes) {
+            subsampling++;
+        }
+        return subsampling;
+    }
+}
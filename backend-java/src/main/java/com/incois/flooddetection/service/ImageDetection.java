@@ -0,0 +1,44 @@
+package com.incois.flooddetection.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+// The image-only part of a detection: everything that depends on the pixels
+// and nothing that depends on the location or time of the request
+class ImageDetection {
+
+    final Map<String, Double> prediction;
+    final ImageAnalysisResult analysis;
+    final String format;
+    final int sourceWidth;
+    final int sourceHeight;
+    final int subsampling;
+    // Hamming distance to the perceptual hash whose result was reused, or -1
+    // when this image was analysed itself
+    final int matchDistance;
+    // Time the model backend took, or -1 when the result was reused
+    final long inferenceNanos;
+    // The model that made the prediction
+    final String modelBackend;
+    // Made by a stand-in model; such results are neither cached nor indexed
+    final boolean fallback;
+
+    ImageDetection(DecodedImage decoded, ImageAnalysisResult analysis, Map<String, Double> prediction,
+            long inferenceNanos, int matchDistance, String modelBackend, boolean fallback) {
+        this.prediction = Collections.unmodifiableMap(prediction);
+        this.analysis = analysis;
+        this.format = decoded.format;
+        this.sourceWidth = decoded.sourceWidth;
+        this.sourceHeight = decoded.sourceHeight;
+        this.subsampling = decoded.subsampling;
+        this.matchDistance = matchDistance;
+        this.inferenceNanos = inferenceNanos;
+        this.modelBackend = modelBackend;
+        this.fallback = fallback;
+    }
+
+    // Rough heap footprint, used to hold the result cache under its ceiling
+    long estimatedBytes() {
+        return 256 + 64L * (prediction.size() + analysis.sampleCounts.size());
+    }
+}
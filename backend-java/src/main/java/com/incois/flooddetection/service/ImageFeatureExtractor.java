@@ -0,0 +1,208 @@
+package com.incois.flooddetection.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+@Service
+public class ImageFeatureExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageFeatureExtractor.class);
+
+    // Enough bands per thread to even out uneven rows, but not so thin that
+    // the +/-2 row neighbourhoods dominate
+    private static final int BANDS_PER_THREAD = 4;
+    private static final int MIN_BAND_ROWS = 64;
+
+    // Images below this many pixels are analysed on the calling thread. Must
+    // stay below app.image.decode.target-pixels, which bounds decoded images.
+    @Value("${app.analysis.parallel.min-pixels:1000000}")
+    private long parallelMinPixels;
+
+    // Size of the dedicated analysis pool; it caps the CPU that all concurrent
+    // large images can take together, so they never starve other requests
+    @Value("${app.analysis.parallel.max-threads:4}")
+    private int maxThreads;
+
+    // Per-feature sample cap; strides widen on larger images to stay within it
+    @Value("${app.analysis.sample-budget:250000}")
+    private long sampleBudget;
+
+    private int parallelism;
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    void init() {
+        parallelism = Math.max(1, Math.min(maxThreads, Runtime.getRuntime().availableProcessors()));
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism, ImageFeatureExtractor::newWorker, null, false);
+        }
+        logger.info("Image analysis parallelism: {} threads for images of {}+ pixels", parallelism,
+                parallelMinPixels);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // Builds the shared luma and integral planes, then fills every
+    // ImageAnalysisResult field in a single row-major pass over them.
+    // Large images are split into row bands processed on the analysis pool.
+    ImageAnalysisResult extract(BufferedImage image) {
+        return analyse(unpack(image));
+    }
+
+    // Stage 1 on its own: pixels and luma, enough for a perceptual hash
+    ImagePlanes unpack(BufferedImage image) {
+        ImagePlanes planes = ImagePlanes.allocate(image);
+        forEachBand(bandBounds(image.getWidth(), image.getHeight()),
+                (band, yStart, yEnd) -> planes.unpackRows(image, yStart, yEnd));
+        return planes;
+    }
+
+    // The remaining stages, on planes returned by unpack
+    ImageAnalysisResult analyse(ImagePlanes planes) {
+        return analyse(planes, null);
+    }
+
+    // Same, recording the time of plane derivation and feature accumulation
+    // in the trace when there is one
+    ImageAnalysisResult analyse(ImagePlanes planes, DetectionTrace trace) {
+        long start = System.nanoTime();
+        int width = planes.luma.width;
+        int height = planes.luma.height;
+        int[] bounds = bandBounds(width, height);
+        int bands = bounds.length - 1;
+        SamplingPlan plan = SamplingPlan.forImage(width, height, sampleBudget);
+
+        forEachBand(bounds, (band, yStart, yEnd) -> planes.deriveRows(yStart, yEnd));
+
+        // Join the band-local summed-area tables: carry the running totals down
+        // band by band, then add them to the inner rows of every band
+        if (bands > 1) {
+            for (int band = 1; band < bands; band++) {
+                planes.integral.carryInto(bounds[band], bounds[band + 1]);
+            }
+            forEachBand(bounds, (band, yStart, yEnd) -> {
+                if (band > 0) {
+                    planes.integral.applyCarry(yStart, yEnd);
+                }
+            });
+        }
+
+        if (trace != null) {
+            trace.recordSince(DetectionTrace.Stage.DERIVE_PLANES, start);
+            start = System.nanoTime();
+        }
+
+        FeatureAccumulator[] partials = new FeatureAccumulator[bands];
+        forEachBand(bounds, (band, yStart, yEnd) -> {
+            FeatureAccumulator accumulator = new FeatureAccumulator(plan);
+            for (int y = yStart; y < yEnd; y++) {
+                accumulator.accumulateRow(planes, y);
+            }
+            partials[band] = accumulator;
+        });
+
+        // Merge in band order so the result does not depend on scheduling
+        FeatureAccumulator total = partials[0];
+        for (int band = 1; band < bands; band++) {
+            total.merge(partials[band]);
+        }
+
+        ImageAnalysisResult result = new ImageAnalysisResult();
+        result.width = width;
+        result.height = height;
+        total.writeTo(result);
+        if (trace != null) {
+            trace.recordSince(DetectionTrace.Stage.FEATURES, start);
+        }
+        return result;
+    }
+
+    // The features of a near-duplicate reported with this image's own
+    // diagnostics: its resolution and the samples each grid takes on it
+    ImageAnalysisResult reuse(ImageAnalysisResult matched, ImagePlanes planes) {
+        int width = planes.luma.width;
+        int height = planes.luma.height;
+        ImageAnalysisResult result = matched.copyFeatures();
+        result.width = width;
+        result.height = height;
+        FeatureAccumulator.writeSampleCounts(SamplingPlan.forImage(width, height, sampleBudget), width, height,
+                result.sampleCounts);
+        return result;
+    }
+
+    // The analysis pool, or null when every image is analysed on the calling thread
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    // Row boundaries of each band: band i covers [bounds[i], bounds[i + 1])
+    private int[] bandBounds(int width, int height) {
+        int bands = 1;
+        if (parallelism > 1 && (long) width * height >= parallelMinPixels) {
+            bands = Math.max(1, Math.min(parallelism * BANDS_PER_THREAD, height / MIN_BAND_ROWS));
+        }
+        int[] bounds = new int[bands + 1];
+        for (int band = 0; band <= bands; band++) {
+            bounds[band] = (int) ((long) height * band / bands);
+        }
+        return bounds;
+    }
+
+    private void forEachBand(int[] bounds, BandOperation operation) {
+        if (bounds.length == 2) {
+            operation.run(0, bounds[0], bounds[1]);
+        } else {
+            pool.invoke(new BandTask(bounds, 0, bounds.length - 1, operation));
+        }
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("flood-analysis-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    @FunctionalInterface
+    private interface BandOperation {
+        void run(int band, int yStart, int yEnd);
+    }
+
+    // Splits a range of bands in halves until each task holds a single band
+    private static class BandTask extends RecursiveAction {
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+        private final BandOperation operation;
+
+        BandTask(int[] bounds, int from, int to, BandOperation operation) {
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.operation = operation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                operation.run(from, bounds[from], bounds[from + 1]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandTask(bounds, from, mid, operation), new BandTask(bounds, mid, to, operation));
+        }
+    }
+}
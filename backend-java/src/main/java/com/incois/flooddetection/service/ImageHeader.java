@@ -0,0 +1,30 @@
+package com.incois.flooddetection.service;
+
+// What an image says about itself before any pixel data is decoded
+class ImageHeader {
+
+    final String format;
+    final int width;
+    final int height;
+    final int bands;
+    final int bitsPerPixel;
+
+    ImageHeader(String format, int width, int height, int bands, int bitsPerPixel) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.bands = bands;
+        this.bitsPerPixel = bitsPerPixel;
+    }
+
+    long pixels() {
+        return (long) width * height;
+    }
+
+    // Heap needed for the raster when every n-th pixel of every n-th row is decoded
+    long decodedBytes(int subsampling) {
+        long decodedWidth = (width + subsampling - 1) / subsampling;
+        long decodedHeight = (height + subsampling - 1) / subsampling;
+        return decodedWidth * decodedHeight * ((bitsPerPixel + 7) / 8);
+    }
+}
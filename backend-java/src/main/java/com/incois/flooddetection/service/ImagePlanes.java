@@ -0,0 +1,46 @@
+package com.incois.flooddetection.service;
+
+import java.awt.image.BufferedImage;
+
+// Per-image derived data shared by all feature kernels. Built in row bands so
+// ImageFeatureExtractor can fill disjoint bands concurrently; each stage reads
+// neighbouring rows of the stage before it, so every stage must finish for all
+// bands before the next one starts.
+class ImagePlanes {
+
+    final PixelBuffer pixels;
+    final LumaPlane luma;
+    final IntegralImage integral;
+
+    private ImagePlanes(PixelBuffer pixels, LumaPlane luma, IntegralImage integral) {
+        this.pixels = pixels;
+        this.luma = luma;
+        this.integral = integral;
+    }
+
+    // Reuses the calling thread's PlaneScratch arrays when it has opted in
+    static ImagePlanes allocate(BufferedImage image) {
+        PlaneScratch scratch = PlaneScratch.current();
+        if (scratch != null) {
+            PixelBuffer pixels = PixelBuffer.allocate(image, scratch);
+            return new ImagePlanes(pixels,
+                    LumaPlane.allocate(pixels.width, pixels.height, scratch),
+                    IntegralImage.allocate(pixels.width, pixels.height, scratch));
+        }
+        PixelBuffer pixels = PixelBuffer.allocate(image);
+        return new ImagePlanes(pixels,
+                LumaPlane.allocate(pixels.width, pixels.height),
+                IntegralImage.allocate(pixels.width, pixels.height));
+    }
+
+    // Stage 1: pixels and luminance, row local
+    void unpackRows(BufferedImage image, int yStart, int yEnd) {
+        pixels.unpackRows(image, yStart, yEnd);
+        luma.computeRows(pixels, yStart, yEnd);
+    }
+
+    // Stage 2: band-local integral rows
+    void deriveRows(int yStart, int yEnd) {
+        integral.computeRows(luma, yStart, yEnd);
+    }
+}
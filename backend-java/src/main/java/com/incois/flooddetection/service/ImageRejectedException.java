@@ -0,0 +1,11 @@
+package com.incois.flooddetection.service;
+
+import java.io.IOException;
+
+// Upload refused by the admission limits before it was decoded
+public class ImageRejectedException extends IOException {
+
+    public ImageRejectedException(String message) {
+        super(message);
+    }
+}
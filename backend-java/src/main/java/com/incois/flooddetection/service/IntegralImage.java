@@ -0,0 +1,118 @@
+package com.incois.flooddetection.service;
+
+import java.util.Arrays;
+
+// Summed-area tables of luminance and squared luminance, so the sum, mean and
+// variance of any rectangular window cost four lookups regardless of its size.
+//
+// The tables are int[] and are allowed to overflow: window sums are recovered
+// with wrap-around subtraction, which is exact as long as the window itself
+// sums to less than 2^31 (any window up to ~33000 pixels for squared luma).
+class IntegralImage {
+
+    final int width;
+    final int height;
+    // (width + 1) x (height + 1), first row and column are zero
+    private final int[] sum;
+    private final int[] squareSum;
+    private final int stride;
+
+    private IntegralImage(int width, int height, int[] sum, int[] squareSum) {
+        this.width = width;
+        this.height = height;
+        this.sum = sum;
+        this.squareSum = squareSum;
+        this.stride = width + 1;
+    }
+
+    static IntegralImage allocate(int width, int height) {
+        int cells = (width + 1) * (height + 1);
+        return new IntegralImage(width, height, new int[cells], new int[cells]);
+    }
+
+    // computeRows never writes the first row and column, so a recycled array
+    // has them cleared
+    static IntegralImage allocate(int width, int height, PlaneScratch scratch) {
+        int cells = (width + 1) * (height + 1);
+        IntegralImage integral = new IntegralImage(width, height, scratch.sum(cells), scratch.squareSum(cells));
+        Arrays.fill(integral.sum, 0, integral.stride, 0);
+        Arrays.fill(integral.squareSum, 0, integral.stride, 0);
+        for (int row = integral.stride; row < cells; row += integral.stride) {
+            integral.sum[row] = 0;
+            integral.squareSum[row] = 0;
+        }
+        return integral;
+    }
+
+    // Fills table rows for luma rows [yStart, yEnd) as if the rows above yStart
+    // were empty. Bands computed this way are joined up with carryInto/applyCarry.
+    void computeRows(LumaPlane plane, int yStart, int yEnd) {
+        byte[] luma = plane.luma;
+        for (int y = yStart; y < yEnd; y++) {
+            int rowSum = 0;
+            int rowSquareSum = 0;
+            int src = y * width;
+            int above = y * stride + 1;
+            int dst = above + stride;
+            boolean firstRow = y == yStart;
+            for (int x = 0; x < width; x++) {
+                int v = luma[src + x] & 0xFF;
+                rowSum += v;
+                rowSquareSum += v * v;
+                sum[dst + x] = (firstRow ? 0 : sum[above + x]) + rowSum;
+                squareSum[dst + x] = (firstRow ? 0 : squareSum[above + x]) + rowSquareSum;
+            }
+        }
+    }
+
+    // Completes the last row of band [yStart, yEnd) once the band above it is
+    // complete. Must run band by band from the top.
+    void carryInto(int yStart, int yEnd) {
+        addRow(yStart, yEnd, yEnd + 1);
+    }
+
+    // Adds the completed row above the band to the rest of the band; bands may
+    // run concurrently once every carryInto has been done
+    void applyCarry(int yStart, int yEnd) {
+        addRow(yStart, yStart + 1, yEnd);
+    }
+
+    // Adds table row `source` to table rows [from, to)
+    private void addRow(int source, int from, int to) {
+        int src = source * stride;
+        for (int row = from; row < to; row++) {
+            int dst = row * stride;
+            for (int x = 1; x < stride; x++) {
+                sum[dst + x] += sum[src + x];
+                squareSum[dst + x] += squareSum[src + x];
+            }
+        }
+    }
+
+    // Window [x0, x1) x [y0, y1)
+    int sum(int x0, int y0, int x1, int y1) {
+        return windowSum(sum, x0, y0, x1, y1);
+    }
+
+    double mean(int x0, int y0, int x1, int y1) {
+        return (double) sum(x0, y0, x1, y1) / ((x1 - x0) * (y1 - y0));
+    }
+
+    double variance(int x0, int y0, int x1, int y1) {
+        int count = (x1 - x0) * (y1 - y0);
+        double mean = (double) sum(x0, y0, x1, y1) / count;
+        double meanSquare = (double) windowSum(squareSum, x0, y0, x1, y1) / count;
+        return Math.max(0.0, meanSquare - mean * mean);
+    }
+
+    // Variance of the (2 * radius + 1) square window centred on (x, y)
+    double varianceAround(int x, int y, int radius) {
+        return variance(x - radius, y - radius, x + radius + 1, y + radius + 1);
+    }
+
+    private int windowSum(int[] table, int x0, int y0, int x1, int y1) {
+        int top = y0 * stride;
+        int bottom = y1 * stride;
+        return table[bottom + x1] - table[bottom + x0] - table[top + x1] + table[top + x0];
+    }
+}
@@ -0,0 +1,47 @@
+package com.incois.flooddetection.service;
+
+// Integer luminance of every pixel, computed once per image. Replaces the
+// per-sample 0.299r + 0.587g + 0.114b double math the features used to repeat.
+class LumaPlane {
+
+    // 0.299, 0.587 and 0.114 in 16.16 fixed point (they sum to exactly 1 << 16)
+    private static final int RED_WEIGHT = 19595;
+    private static final int GREEN_WEIGHT = 38470;
+    private static final int BLUE_WEIGHT = 7471;
+
+    final int width;
+    final int height;
+    final byte[] luma;
+
+    private LumaPlane(int width, int height, byte[] luma) {
+        this.width = width;
+        this.height = height;
+        this.luma = luma;
+    }
+
+    static LumaPlane allocate(int width, int height) {
+        return new LumaPlane(width, height, new byte[width * height]);
+    }
+
+    static LumaPlane allocate(int width, int height, PlaneScratch scratch) {
+        return new LumaPlane(width, height, scratch.luma(width * height));
+    }
+
+    void computeRows(PixelBuffer pixels, int yStart, int yEnd) {
+        int[] argb = pixels.argb;
+        for (int i = yStart * width, end = yEnd * width; i < end; i++) {
+            luma[i] = (byte) luminance(argb[i]);
+        }
+    }
+
+    static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (RED_WEIGHT * r + GREEN_WEIGHT * g + BLUE_WEIGHT * b) >>> 16;
+    }
+
+    int at(int index) {
+        return luma[index] & 0xFF;
+    }
+}
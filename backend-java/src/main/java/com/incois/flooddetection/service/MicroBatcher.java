@@ -0,0 +1,260 @@
+package com.incois.flooddetection.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Groups concurrent predictions into batches for FloodModelBackend.predictBatch.
+// A dispatcher thread takes the oldest waiting image, adds whatever else
+// arrives until the batch is full or the oldest has waited maxWait, and hands
+// the batch to a free worker. While every worker is busy, images pile up in
+// the queue and the next batch leaves full, so batches grow with load and
+// stay at one image when idle.
+//
+// Callers block until their batch has run, which keeps their planes valid
+// while a worker reads them. A caller that is interrupted first is dropped
+// from any batch not yet formed; if its batch is already running, the image
+// thread detaches its PlaneScratch rather than reuse planes still being read.
+//
+// After shutdown, predict fails with IllegalStateException, and so does every
+// image still queued or in a batch that has not started.
+class MicroBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final FloodModelBackend backend;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request> queue;
+    private final int queueCapacity;
+    private final Semaphore freeWorkers;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    // batchSizes[n] counts batches of n images
+    private final AtomicLongArray batchSizes;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedImages = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+
+    MicroBatcher(FloodModelBackend backend, int maxBatchSize, long maxWaitMillis, int queueCapacity, int workerCount) {
+        this.backend = backend;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.freeWorkers = new Semaphore(workerCount);
+        this.batchSizes = new AtomicLongArray(maxBatchSize + 1);
+
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "flood-inference-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "flood-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    void shutdown() {
+        closed = true;
+        dispatcher.interrupt();
+        // Batches handed over but not started never run
+        for (Runnable pending : workers.shutdownNow()) {
+            ((BatchTask) pending).fail();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(shuttingDown());
+        }
+    }
+
+    // Images waiting for a batch
+    int queued() {
+        return queue.size();
+    }
+
+    int queueCapacity() {
+        return queueCapacity;
+    }
+
+    FloodModelService.Inference predict(ImagePlanes planes, ImageAnalysisResult analysis) throws Exception {
+        if (closed) {
+            throw shuttingDown();
+        }
+        Request request = new Request(planes, analysis);
+        if (!queue.offer(request)) {
+            throw new DetectionOverloadedException("Inference queue is full, retry later");
+        }
+        // shutdown may have drained the queue between the check and the offer;
+        // a request the dispatcher took instead is failed with its batch
+        if (closed && queue.remove(request)) {
+            throw shuttingDown();
+        }
+        try {
+            return request.result.get();
+        } catch (InterruptedException e) {
+            request.abandoned = true;
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        }
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                freeWorkers.acquire();
+                List<Request> batch = collect();
+                if (batch.isEmpty()) {
+                    freeWorkers.release();
+                    continue;
+                }
+                BatchTask task = new BatchTask(batch);
+                try {
+                    workers.execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.fail();
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Blocks for the first image, then fills up until the batch is full or
+    // the first image has waited maxWait
+    private List<Request> collect() throws InterruptedException {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        Request first = queue.take();
+        long deadline = first.enqueuedAt + maxWaitNanos;
+        add(batch, first);
+        try {
+            while (batch.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                if (next == null) {
+                    break;
+                }
+                add(batch, next);
+            }
+        } catch (InterruptedException e) {
+            fail(batch);
+            throw e;
+        }
+        return batch;
+    }
+
+    private void add(List<Request> batch, Request request) {
+        if (!request.abandoned) {
+            batch.add(request);
+        }
+    }
+
+    private void run(List<Request> batch) {
+        long start = System.nanoTime();
+        List<ImagePlanes> planes = new ArrayList<>(batch.size());
+        List<ImageAnalysisResult> analyses = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            planes.add(request.planes);
+            analyses.add(request.analysis);
+            queueNanos.add(start - request.enqueuedAt);
+        }
+        batchSizes.incrementAndGet(batch.size());
+        batches.increment();
+        batchedImages.add(batch.size());
+
+        try {
+            List<Map<String, Double>> predictions = backend.predictBatch(planes, analyses);
+            long nanos = System.nanoTime() - start;
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(new FloodModelService.Inference(predictions.get(i), nanos));
+            }
+        } catch (Throwable e) {
+            logger.warn("Batch of {} images failed: {}", batch.size(), e.toString());
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void fail(List<Request> batch) {
+        for (Request request : batch) {
+            request.result.completeExceptionally(shuttingDown());
+        }
+    }
+
+    private static IllegalStateException shuttingDown() {
+        return new IllegalStateException("Inference is shutting down");
+    }
+
+    FloodModelService.BatchingStats stats() {
+        long batchCount = batches.sum();
+        long images = batchedImages.sum();
+        long[] sizes = new long[maxBatchSize + 1];
+        for (int size = 1; size <= maxBatchSize; size++) {
+            sizes[size] = batchSizes.get(size);
+        }
+        return new FloodModelService.BatchingStats(maxBatchSize, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos),
+                queue.size(), batchCount, batchCount == 0 ? 0.0 : (double) images / batchCount,
+                images == 0 ? 0.0 : queueNanos.sum() / 1e6 / images, sizes);
+    }
+
+    // A formed batch waiting for, or running on, a worker
+    private class BatchTask implements Runnable {
+        private final List<Request> batch;
+
+        BatchTask(List<Request> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                MicroBatcher.this.run(batch);
+            } finally {
+                freeWorkers.release();
+            }
+        }
+
+        void fail() {
+            MicroBatcher.fail(batch);
+        }
+    }
+
+    private static class Request {
+        final ImagePlanes planes;
+        final ImageAnalysisResult analysis;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<FloodModelService.Inference> result = new CompletableFuture<>();
+        volatile boolean abandoned;
+
+        Request(ImagePlanes planes, ImageAnalysisResult analysis) {
+            this.planes = planes;
+            this.analysis = analysis;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.incois.flooddetection.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Image-only detection results indexed by perceptual hash in a BK-tree, so a
+// recompressed or resized copy of an analysed photo is matched by Hamming
+// distance instead of by its bytes. BK-trees do not support removal; once the
+// index holds max-entries results it is rebuilt from the newest half.
+//
+// Images too flat for their hash bits to mean anything are neither indexed
+// nor matched, and a match must also agree on the mean colour: a 9x8 luma
+// hash cannot tell a grey sky from brown floodwater.
+@Service
+public class NearDuplicateIndex {
+
+    // Hashes of one image 64 bits wide differ in at most 64 bits
+    private static final int MAX_DISTANCE = 64;
+
+    @Value("${app.near-duplicate.enabled:true}")
+    private boolean enabled;
+
+    // Largest Hamming distance still treated as the same photo
+    @Value("${app.near-duplicate.max-distance:6}")
+    private int maxDistance;
+
+    // Hashes with fewer set (or clear) bits than this come from images with
+    // hardly any horizontal structure
+    @Value("${app.near-duplicate.min-hash-bits:8}")
+    private int minHashBits;
+
+    // Least spread of the hash cell means, in luma levels, for a distinctive image
+    @Value("${app.near-duplicate.min-cell-spread:4.0}")
+    private double minCellSpread;
+
+    // Largest difference of mean red, green or blue still treated as the same photo
+    @Value("${app.near-duplicate.max-color-difference:12}")
+    private int maxColorDifference;
+
+    @Value("${app.near-duplicate.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.near-duplicate.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Insertion order, oldest first; the source for rebuilds
+    private final List<Node> nodes = new ArrayList<>();
+    private Node root;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong indistinct = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // Closest indexed result within max-distance of the hash and of a similar
+    // colour, or null
+    Match find(PerceptualHash.Fingerprint fingerprint) {
+        if (!enabled) {
+            return null;
+        }
+        if (!isDistinctive(fingerprint)) {
+            indistinct.incrementAndGet();
+            return null;
+        }
+        long hash = fingerprint.hash;
+        long start = System.nanoTime();
+        Match best = null;
+        lock.readLock().lock();
+        try {
+            ArrayDeque<Node> pending = new ArrayDeque<>();
+            if (root != null) {
+                pending.push(root);
+            }
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                int distance = PerceptualHash.distance(hash, node.fingerprint.hash);
+                if (distance <= maxDistance && (best == null || distance < best.distance)
+                        && fingerprint.colorDifference(node.fingerprint) <= maxColorDifference
+                        && !isExpired(node, start)) {
+                    best = new Match(node.detection, distance);
+                }
+                // Triangle inequality: only children at distance d +/- max-distance
+                // from this node can hold a match
+                int from = Math.max(0, distance - maxDistance);
+                int to = Math.min(MAX_DISTANCE, distance + maxDistance);
+                for (int d = from; d <= to; d++) {
+                    if (node.children[d] != null) {
+                        pending.push(node.children[d]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lookups.incrementAndGet();
+        if (best != null) {
+            hits.incrementAndGet();
+        }
+        lookupNanos.addAndGet(System.nanoTime() - start);
+        return best;
+    }
+
+    void add(PerceptualHash.Fingerprint fingerprint, ImageDetection detection) {
+        if (!enabled || !isDistinctive(fingerprint)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodes.size() >= maxEntries) {
+                rebuild(System.nanoTime());
+            }
+            Node node = new Node(fingerprint, detection, System.nanoTime());
+            nodes.add(node);
+            insert(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(nodes.size(), maxDistance, lookups.get(), hits.get(), indistinct.get(),
+                    lookupNanos.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keeps the newest half of the unexpired entries
+    private void rebuild(long now) {
+        List<Node> kept = new ArrayList<>();
+        for (int i = nodes.size() / 2; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (!isExpired(node, now)) {
+                kept.add(new Node(node.fingerprint, node.detection, node.createdAt));
+            }
+        }
+        nodes.clear();
+        root = null;
+        for (Node node : kept) {
+            nodes.add(node);
+            insert(node);
+        }
+    }
+
+    private void insert(Node node) {
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node parent = root;
+        while (true) {
+            int distance = PerceptualHash.distance(node.fingerprint.hash, parent.fingerprint.hash);
+            Node child = parent.children[distance];
+            if (child == null) {
+                parent.children[distance] = node;
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    private boolean isDistinctive(PerceptualHash.Fingerprint fingerprint) {
+        int bits = Long.bitCount(fingerprint.hash);
+        return bits >= minHashBits && Long.SIZE - bits >= minHashBits && fingerprint.cellSpread >= minCellSpread;
+    }
+
+    private boolean isExpired(Node node, long now) {
+        return ttlSeconds > 0 && now - node.createdAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    static class Match {
+        final ImageDetection detection;
+        final int distance;
+
+        Match(ImageDetection detection, int distance) {
+            this.detection = detection;
+            this.distance = distance;
+        }
+    }
+
+    private static class Node {
+        final PerceptualHash.Fingerprint fingerprint;
+        final ImageDetection detection;
+        final long createdAt;
+        // children[d] is the subtree of hashes at distance d from this one
+        final Node[] children = new Node[MAX_DISTANCE + 1];
+
+        Node(PerceptualHash.Fingerprint fingerprint, ImageDetection detection, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.detection = detection;
+            this.createdAt = createdAt;
+        }
+    }
+
+    public static class Stats {
+        private final int entries;
+        private final int maxDistance;
+        private final long lookups;
+        private final long hits;
+        private final long indistinct;
+        private final long lookupNanos;
+
+        Stats(int entries, int maxDistance, long lookups, long hits, long indistinct, long lookupNanos) {
+            this.entries = entries;
+            this.maxDistance = maxDistance;
+            this.lookups = lookups;
+            this.hits = hits;
+            this.indistinct = indistinct;
+            this.lookupNanos = lookupNanos;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public int getMaxDistance() {
+            return maxDistance;
+        }
+
+        public long getLookups() {
+            return lookups;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        // Lookups skipped because the image was too flat to match reliably
+        public long getIndistinct() {
+            return indistinct;
+        }
+
+        public double getHitRate() {
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        public double getAverageLookupMicros() {
+            return lookups == 0 ? 0.0 : lookupNanos / 1000.0 / lookups;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.incois.flooddetection.service;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Runs an exported image classifier (e.g. prithivMLmods/flood-image-detection
+// converted to ONNX) on the CPU with ONNX Runtime. Sessions are pooled: each
+// one owns a direct input buffer and the tensor wrapping it, so preprocessing
+// writes pixels straight into memory the runtime reads, with nothing
+// allocated or copied per request. With batching on, that buffer holds a full
+// batch and one tensor is kept per batch size over its leading part.
+@Service
+@ConditionalOnProperty(name = "app.model.backend", havingValue = "onnx")
+class OnnxFloodModel implements FloodModelBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnnxFloodModel.class);
+
+    private static final String FLOODED_LABEL = "Flooded Scene";
+
+    @Value("${app.model.onnx.path:}")
+    private String modelPath;
+
+    // Reported by the health endpoint
+    @Value("${app.model.onnx.name:prithivMLmods/flood-image-detection}")
+    private String modelName;
+
+    // Output classes in logit order
+    @Value("${app.model.onnx.labels:Flooded Scene,Non Flooded}")
+    private List<String> labels;
+
+    // Used when the model does not fix its input resolution
+    @Value("${app.model.onnx.input-size:224}")
+    private int defaultInputSize;
+
+    @Value("${app.model.onnx.mean:0.5,0.5,0.5}")
+    private float[] mean;
+
+    @Value("${app.model.onnx.std:0.5,0.5,0.5}")
+    private float[] std;
+
+    // Off for models that already end in a softmax
+    @Value("${app.model.onnx.apply-softmax:true}")
+    private boolean applySoftmax;
+
+    // Concurrent inferences; each session holds its own copy of the weights
+    @Value("${app.model.onnx.sessions:2}")
+    private int sessionCount;
+
+    @Value("${app.model.onnx.intra-op-threads:1}")
+    private int intraOpThreads;
+
+    // How long a detection waits for a free session before it is shed
+    @Value("${app.model.onnx.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
+    @Value("${app.model.batching.enabled:false}")
+    private boolean batchingEnabled;
+
+    @Value("${app.model.batching.max-batch-size:8}")
+    private int maxBatchSize;
+
+    // Images per run the input tensors are sized for; 1 without batching or
+    // when the model fixes its batch dimension
+    private int batchCapacity;
+
+    private OrtEnvironment environment;
+    private final List<Slot> slots = new ArrayList<>();
+    private BlockingQueue<Slot> idle;
+
+    @PostConstruct
+    void init() throws OrtException {
+        if (modelPath.isEmpty() || !new File(modelPath).isFile()) {
+            throw new IllegalStateException("app.model.backend=onnx needs app.model.onnx.path to name a model file, got '"
+                    + modelPath + "'");
+        }
+        if (!labels.contains(FLOODED_LABEL)) {
+            throw new IllegalStateException("app.model.onnx.labels must include '" + FLOODED_LABEL + "'");
+        }
+        if (mean.length != 3 || std.length != 3) {
+            throw new IllegalStateException("app.model.onnx.mean and app.model.onnx.std need one value per channel");
+        }
+
+        environment = OrtEnvironment.getEnvironment();
+        idle = new ArrayBlockingQueue<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            Slot slot = openSlot();
+            slots.add(slot);
+            idle.add(slot);
+        }
+        logger.info("ONNX model {} loaded from {}: {} sessions, {}x{} input, batches of up to {}, {} intra-op threads each",
+                modelName, modelPath, sessionCount, slots.get(0).size, slots.get(0).size, batchCapacity,
+                intraOpThreads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Slot slot : slots) {
+            slot.close();
+        }
+    }
+
+    @Override
+    public String name() {
+        return modelName;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return batchCapacity;
+    }
+
+    @Override
+    public Map<String, Double> predict(ImagePlanes planes, ImageAnalysisResult analysis) throws Exception {
+        return predictBatch(Collections.singletonList(planes), Collections.singletonList(analysis)).get(0);
+    }
+
+    @Override
+    public List<Map<String, Double>> predictBatch(List<ImagePlanes> planes, List<ImageAnalysisResult> analyses)
+            throws Exception {
+        int count = planes.size();
+        if (count > batchCapacity) {
+            throw new IllegalArgumentException("Batch of " + count + " exceeds " + batchCapacity);
+        }
+        Slot slot = idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        if (slot == null) {
+            throw new DetectionOverloadedException("All model sessions are busy, retry later");
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                slot.preprocessor.write(planes.get(i).pixels, slot.buffer, i * slot.preprocessor.capacity());
+            }
+            OnnxTensor input = slot.inputs[count - 1];
+            try (OrtSession.Result result = slot.session.run(Collections.singletonMap(slot.inputName, input))) {
+                float[][] logits = (float[][]) result.get(0).getValue();
+                List<Map<String, Double>> predictions = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    predictions.add(toPrediction(logits[i]));
+                }
+                return predictions;
+            }
+        } finally {
+            idle.add(slot);
+        }
+    }
+
+    private Map<String, Double> toPrediction(float[] scores) {
+        if (scores.length != labels.size()) {
+            throw new IllegalStateException("Model returned " + scores.length + " scores for " + labels.size()
+                    + " labels");
+        }
+        double[] probabilities = new double[scores.length];
+        if (applySoftmax) {
+            float max = Float.NEGATIVE_INFINITY;
+            for (float score : scores) {
+                max = Math.max(max, score);
+            }
+            double total = 0.0;
+            for (int i = 0; i < scores.length; i++) {
+                probabilities[i] = Math.exp(scores[i] - max);
+                total += probabilities[i];
+            }
+            for (int i = 0; i < scores.length; i++) {
+                probabilities[i] /= total;
+            }
+        } else {
+            for (int i = 0; i < scores.length; i++) {
+                probabilities[i] = scores[i];
+            }
+        }
+
+        Map<String, Double> prediction = new HashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            prediction.put(labels.get(i), Math.round(probabilities[i] * 1000.0) / 1000.0);
+        }
+        return prediction;
+    }
+
+    private Slot openSlot() throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+        options.setIntraOpNumThreads(intraOpThreads);
+        options.setInterOpNumThreads(1);
+        OrtSession session = environment.createSession(modelPath, options);
+
+        String inputName = session.getInputNames().iterator().next();
+        long[] shape = inputShape(session.getInputInfo().get(inputName));
+        // NCHW models usually fix height and width even with a dynamic batch
+        int size = shape.length == 4 && shape[2] > 0 && shape[2] == shape[3] ? (int) shape[2] : defaultInputSize;
+        boolean dynamicBatch = shape.length == 4 && shape[0] <= 0;
+        if (batchingEnabled && !dynamicBatch && slots.isEmpty()) {
+            logger.warn("ONNX model {} has a fixed batch dimension, running one image at a time", modelName);
+        }
+        batchCapacity = batchingEnabled && dynamicBatch ? Math.max(1, maxBatchSize) : 1;
+
+        TensorPreprocessor preprocessor = new TensorPreprocessor(size, mean, std);
+        // A direct, native-order buffer is wrapped by the tensors, not copied
+        FloatBuffer buffer = ByteBuffer.allocateDirect(batchCapacity * preprocessor.capacity() * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        OnnxTensor[] inputs = new OnnxTensor[batchCapacity];
+        for (int n = 1; n <= batchCapacity; n++) {
+            FloatBuffer images = buffer.duplicate();
+            images.limit(n * preprocessor.capacity());
+            inputs[n - 1] = OnnxTensor.createTensor(environment, images.slice(), new long[] { n, 3, size, size });
+        }
+        return new Slot(options, session, inputName, size, preprocessor, buffer, inputs);
+    }
+
+    private static long[] inputShape(NodeInfo input) {
+        if (input.getInfo() instanceof TensorInfo) {
+            return ((TensorInfo) input.getInfo()).getShape();
+        }
+        return new long[0];
+    }
+
+    // A session with the inputs it is always run on: inputs[n - 1] holds n images
+    private static class Slot {
+        final OrtSession.SessionOptions options;
+        final OrtSession session;
+        final String inputName;
+        final int size;
+        final TensorPreprocessor preprocessor;
+        final FloatBuffer buffer;
+        final OnnxTensor[] inputs;
+
+        Slot(OrtSession.SessionOptions options, OrtSession session, String inputName, int size,
+                TensorPreprocessor preprocessor, FloatBuffer buffer, OnnxTensor[] inputs) {
+            this.options = options;
+            this.session = session;
+            this.inputName = inputName;
+            this.size = size;
+            this.preprocessor = preprocessor;
+            this.buffer = buffer;
+            this.inputs = inputs;
+        }
+
+        void close() {
+            for (OnnxTensor input : inputs) {
+                input.close();
+            }
+            try {
+                session.close();
+            } catch (OrtException e) {
+                logger.warn("Error closing ONNX session", e);
+            }
+            options.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.incois.flooddetection.service;
+
+// 64-bit difference hash (dHash) of the luma plane: the image is area-averaged
+// down to 9x8 cells and each bit records whether a cell is brighter than its
+// right-hand neighbour. Recompression and resizing barely move the cell means,
+// so re-shared copies of a photo land within a few bits of each other.
+//
+// Flat images (sky, fog, a grey wall) leave the cells nearly equal and their
+// bits decided by noise, so the hash travels with the spread of the cell
+// means and the mean colour, which NearDuplicateIndex checks as well.
+final class PerceptualHash {
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+    // Pixels averaged for the mean colour, at most
+    private static final long COLOR_SAMPLES = 65536;
+
+    private PerceptualHash() {
+    }
+
+    static Fingerprint fingerprint(ImagePlanes planes) {
+        LumaPlane plane = planes.luma;
+        long[] sums = new long[COLUMNS * ROWS];
+        long[] counts = new long[COLUMNS * ROWS];
+        long hash = dHash(plane, sums, counts);
+
+        double total = 0;
+        double squareTotal = 0;
+        for (int cell = 0; cell < sums.length; cell++) {
+            double mean = counts[cell] == 0 ? 0.0 : (double) sums[cell] / counts[cell];
+            total += mean;
+            squareTotal += mean * mean;
+        }
+        double cellMean = total / sums.length;
+        double cellSpread = Math.sqrt(Math.max(0.0, squareTotal / sums.length - cellMean * cellMean));
+
+        return new Fingerprint(hash, cellSpread, meanColor(planes.pixels));
+    }
+
+    // Fills sums and counts with the luma total and pixel count of every cell
+    private static long dHash(LumaPlane plane, long[] sums, long[] counts) {
+        int width = plane.width;
+        int height = plane.height;
+        byte[] luma = plane.luma;
+
+        int[] cellOfColumn = new int[width];
+        for (int x = 0; x < width; x++) {
+            cellOfColumn[x] = (int) ((long) x * COLUMNS / width);
+        }
+
+        for (int y = 0; y < height; y++) {
+            int rowCells = (int) ((long) y * ROWS / height) * COLUMNS;
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                sums[rowCells + cellOfColumn[x]] += luma[offset + x] & 0xFF;
+            }
+        }
+        // Cells in one row share their height, so only column widths matter
+        // when comparing neighbours
+        long[] columnWidths = new long[COLUMNS];
+        for (int x = 0; x < width; x++) {
+            columnWidths[cellOfColumn[x]]++;
+        }
+        for (int y = 0; y < height; y++) {
+            int rowCells = (int) ((long) y * ROWS / height) * COLUMNS;
+            for (int column = 0; column < COLUMNS; column++) {
+                counts[rowCells + column] += columnWidths[column];
+            }
+        }
+
+        long hash = 0;
+        int bit = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++) {
+                int left = row * COLUMNS + column;
+                // left mean > right mean, compared without dividing
+                long leftWeighted = sums[left] * columnWidths[column + 1];
+                long rightWeighted = sums[left + 1] * columnWidths[column];
+                if (leftWeighted > rightWeighted) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // Mean red, green and blue over an evenly strided subset of the pixels
+    private static int[] meanColor(PixelBuffer pixels) {
+        int stride = (int) Math.max(1, Math.ceil(Math.sqrt((double) pixels.width * pixels.height / COLOR_SAMPLES)));
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        long samples = 0;
+        for (int y = 0; y < pixels.height; y += stride) {
+            int row = y * pixels.width;
+            for (int x = 0; x < pixels.width; x += stride) {
+                int rgb = pixels.argb[row + x];
+                red += (rgb >> 16) & 0xFF;
+                green += (rgb >> 8) & 0xFF;
+                blue += rgb & 0xFF;
+                samples++;
+            }
+        }
+        if (samples == 0) {
+            return new int[3];
+        }
+        return new int[] { (int) (red / samples), (int) (green / samples), (int) (blue / samples) };
+    }
+
+    static class Fingerprint {
+        final long hash;
+        // Standard deviation of the 72 cell means, in luma levels
+        final double cellSpread;
+        final int[] meanColor;
+
+        Fingerprint(long hash, double cellSpread, int[] meanColor) {
+            this.hash = hash;
+            this.cellSpread = cellSpread;
+            this.meanColor = meanColor;
+        }
+
+        // Largest per-channel difference of the mean colours, in levels
+        int colorDifference(Fingerprint other) {
+            int difference = 0;
+            for (int channel = 0; channel < meanColor.length; channel++) {
+                difference = Math.max(difference, Math.abs(meanColor[channel] - other.meanColor[channel]));
+            }
+            return difference;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.incois.flooddetection.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+// Decoded image normalized once into packed 0xAARRGGBB pixels, row-major.
+// Feature kernels index argb directly instead of calling BufferedImage.getRGB,
+// which goes through the ColorModel for every single pixel.
+class PixelBuffer {
+
+    final int width;
+    final int height;
+    final int[] argb;
+
+    PixelBuffer(int width, int height, int[] argb) {
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+    }
+
+    static PixelBuffer allocate(BufferedImage image) {
+        return new PixelBuffer(image.getWidth(), image.getHeight(), new int[image.getWidth() * image.getHeight()]);
+    }
+
+    // Every pixel is overwritten by unpackRows, so stale contents do not matter
+    static PixelBuffer allocate(BufferedImage image, PlaneScratch scratch) {
+        return new PixelBuffer(image.getWidth(), image.getHeight(), scratch.argb(image.getWidth() * image.getHeight()));
+    }
+
+    // Unpacks rows [yStart, yEnd); disjoint row ranges may be unpacked concurrently
+    void unpackRows(BufferedImage image, int yStart, int yEnd) {
+        if (!unpackRaster(image, argb, yStart, yEnd)) {
+            // Uncommon layouts (16 bit, premultiplied, CMYK...) go through the
+            // ColorModel, but still in one bulk call rather than per pixel
+            image.getRGB(0, yStart, width, yEnd - yStart, argb, yStart * width, width);
+        }
+    }
+
+    private static boolean unpackRaster(BufferedImage image, int[] argb, int yStart, int yEnd) {
+        Raster raster = image.getRaster();
+        ColorModel colorModel = image.getColorModel();
+
+        // Child rasters (sub-images) keep the generic path
+        if (raster.getMinX() != 0 || raster.getMinY() != 0
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getNumBanks() != 1) {
+            return false;
+        }
+
+        if (colorModel instanceof IndexColorModel) {
+            return unpackIndexed(raster, (IndexColorModel) colorModel, argb, yStart, yEnd);
+        }
+        if (raster.getDataBuffer() instanceof DataBufferInt) {
+            return unpackPackedInt(raster, colorModel, argb, yStart, yEnd);
+        }
+        if (raster.getDataBuffer() instanceof DataBufferByte && colorModel instanceof ComponentColorModel) {
+            return unpackInterleavedBytes(raster, colorModel, argb, yStart, yEnd);
+        }
+        return false;
+    }
+
+    // TYPE_INT_RGB / TYPE_INT_ARGB
+    private static boolean unpackPackedInt(Raster raster, ColorModel colorModel, int[] argb, int yStart, int yEnd) {
+        if (!(colorModel instanceof DirectColorModel) || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || colorModel.isAlphaPremultiplied() || !colorModel.getColorSpace().isCS_sRGB()) {
+            return false;
+        }
+        DirectColorModel directModel = (DirectColorModel) colorModel;
+        if (directModel.getRedMask() != 0xFF0000 || directModel.getGreenMask() != 0xFF00
+                || directModel.getBlueMask() != 0xFF) {
+            return false;
+        }
+        boolean hasAlpha = directModel.hasAlpha();
+        if (hasAlpha && directModel.getAlphaMask() != 0xFF000000) {
+            return false;
+        }
+
+        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+        int[] data = dataBuffer.getData();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int width = raster.getWidth();
+        int alphaFill = hasAlpha ? 0 : 0xFF000000;
+
+        for (int y = yStart; y < yEnd; y++) {
+            int src = dataBuffer.getOffset() + y * scanlineStride;
+            int dst = y * width;
+            for (int x = 0; x < width; x++) {
+                argb[dst + x] = data[src + x] | alphaFill;
+            }
+        }
+        return true;
+    }
+
+    // TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR and TYPE_BYTE_GRAY (and their custom PNG equivalents)
+    private static boolean unpackInterleavedBytes(Raster raster, ColorModel colorModel, int[] argb,
+            int yStart, int yEnd) {
+        if (!(raster.getSampleModel() instanceof ComponentSampleModel) || colorModel.isAlphaPremultiplied()) {
+            return false;
+        }
+        for (int bits : colorModel.getComponentSize()) {
+            if (bits != 8) {
+                return false;
+            }
+        }
+
+        ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+        DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+        byte[] data = dataBuffer.getData();
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        int pixelStride = sampleModel.getPixelStride();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int width = raster.getWidth();
+        int numBands = raster.getNumBands();
+
+        if (numBands == 1 && !colorModel.hasAlpha()) {
+            // Grayscale: the gray color space is linear, so the sRGB value of
+            // each level comes from the ColorModel once, not per pixel
+            int[] lut = new int[256];
+            byte[] sample = new byte[1];
+            for (int level = 0; level < 256; level++) {
+                sample[0] = (byte) level;
+                lut[level] = colorModel.getRGB(sample);
+            }
+            int band = dataBuffer.getOffset() + bandOffsets[0];
+            for (int y = yStart; y < yEnd; y++) {
+                int src = band + y * scanlineStride;
+                int dst = y * width;
+                for (int x = 0; x < width; x++, src += pixelStride) {
+                    argb[dst + x] = lut[data[src] & 0xFF];
+                }
+            }
+            return true;
+        }
+
+        if ((numBands != 3 && numBands != 4) || !colorModel.getColorSpace().isCS_sRGB()
+                || colorModel.hasAlpha() != (numBands == 4)) {
+            return false;
+        }
+
+        int base = dataBuffer.getOffset();
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int alphaOffset = numBands == 4 ? bandOffsets[3] : -1;
+
+        for (int y = yStart; y < yEnd; y++) {
+            int src = base + y * scanlineStride;
+            int dst = y * width;
+            for (int x = 0; x < width; x++, src += pixelStride) {
+                int alpha = alphaOffset >= 0 ? data[src + alphaOffset] & 0xFF : 0xFF;
+                argb[dst + x] = (alpha << 24)
+                        | ((data[src + redOffset] & 0xFF) << 16)
+                        | ((data[src + greenOffset] & 0xFF) << 8)
+                        | (data[src + blueOffset] & 0xFF);
+            }
+        }
+        return true;
+    }
+
+    // Palette PNGs and GIFs: TYPE_BYTE_INDEXED and packed 1/2/4 bit TYPE_BYTE_BINARY
+    private static boolean unpackIndexed(Raster raster, IndexColorModel colorModel, int[] argb,
+            int yStart, int yEnd) {
+        SampleModel sampleModel = raster.getSampleModel();
+        int bits = sampleModel.getSampleSize(0);
+        if (sampleModel.getNumBands() != 1 || bits > 16) {
+            return false;
+        }
+
+        int[] lut = new int[1 << bits];
+        int mapSize = Math.min(colorModel.getMapSize(), lut.length);
+        for (int i = 0; i < mapSize; i++) {
+            lut[i] = colorModel.getRGB(i);
+        }
+
+        int width = raster.getWidth();
+
+        if (raster.getDataBuffer().getDataType() == DataBuffer.TYPE_BYTE && bits == 8
+                && sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+            DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+            byte[] data = dataBuffer.getData();
+            int pixelStride = componentModel.getPixelStride();
+            int scanlineStride = componentModel.getScanlineStride();
+            int base = dataBuffer.getOffset() + componentModel.getBandOffsets()[0];
+            for (int y = yStart; y < yEnd; y++) {
+                int src = base + y * scanlineStride;
+                int dst = y * width;
+                for (int x = 0; x < width; x++, src += pixelStride) {
+                    argb[dst + x] = lut[data[src] & 0xFF];
+                }
+            }
+            return true;
+        }
+
+        // Sub-byte packed indices: unpack one row of samples at a time
+        int[] indices = new int[width];
+        for (int y = yStart; y < yEnd; y++) {
+            raster.getSamples(0, y, width, 1, 0, indices);
+            int dst = y * width;
+            for (int x = 0; x < width; x++) {
+                argb[dst + x] = lut[indices[x]];
+            }
+        }
+        return true;
+    }
+}
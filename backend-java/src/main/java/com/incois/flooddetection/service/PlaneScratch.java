@@ -0,0 +1,76 @@
+package com.incois.flooddetection.service;
+
+// Arrays behind ImagePlanes, kept per thread and reused from one image to the
+// next on threads that opt in (the image pool). Arrays grow to the largest
+// image seen, and the planes never index past width * height, so a larger
+// array from an earlier image serves a smaller one; trim drops them once they
+// pass a size cap. Planes built from scratch arrays must not outlive the
+// analysis of their image, and a thread that cannot be sure of that (its
+// stage was cancelled while an inference held the planes) must detach.
+final class PlaneScratch {
+
+    private static final ThreadLocal<PlaneScratch> CURRENT = new ThreadLocal<>();
+
+    private int[] argb = new int[0];
+    private byte[] luma = new byte[0];
+    private int[] sum = new int[0];
+    private int[] squareSum = new int[0];
+
+    private PlaneScratch() {
+    }
+
+    // Opts the calling thread in for the rest of its life
+    static void install() {
+        CURRENT.set(new PlaneScratch());
+    }
+
+    // Null on threads that have not opted in
+    static PlaneScratch current() {
+        return CURRENT.get();
+    }
+
+    // Gives up the calling thread's arrays: another thread may still read
+    // planes built from them. The next image gets fresh ones.
+    static void detach() {
+        if (CURRENT.get() != null) {
+            CURRENT.set(new PlaneScratch());
+        }
+    }
+
+    // Drops the calling thread's arrays once they hold more than maxPixels
+    // pixels, so one oversized image does not stay pinned to the thread
+    static void trim(long maxPixels) {
+        PlaneScratch scratch = CURRENT.get();
+        if (scratch != null && scratch.argb.length > maxPixels) {
+            CURRENT.set(new PlaneScratch());
+        }
+    }
+
+    int[] argb(int length) {
+        if (argb.length < length) {
+            argb = new int[length];
+        }
+        return argb;
+    }
+
+    byte[] luma(int length) {
+        if (luma.length < length) {
+            luma = new byte[length];
+        }
+        return luma;
+    }
+
+    int[] sum(int length) {
+        if (sum.length < length) {
+            sum = new int[length];
+        }
+        return sum;
+    }
+
+    int[] squareSum(int length) {
+        if (squareSum.length < length) {
+            squareSum = new int[length];
+        }
+        return squareSum;
+    }
+}
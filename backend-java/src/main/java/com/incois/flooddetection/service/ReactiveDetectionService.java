@@ -0,0 +1,83 @@
+package com.incois.flooddetection.service;
+
+import com.incois.flooddetection.model.FloodDetectionRequest;
+import com.incois.flooddetection.model.FloodDetectionResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Semaphore;
+
+// Non-blocking front for FloodDetectionService: decoding and analysis run on
+// a bounded scheduler, and a detection is admitted only while a worker or a
+// queue slot is free. Anything beyond that fails fast with
+// DetectionOverloadedException instead of parking another request thread.
+@Service
+public class ReactiveDetectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveDetectionService.class);
+
+    @Value("${app.reactive.threads:4}")
+    private int threads;
+
+    // Admitted detections waiting for a worker
+    @Value("${app.reactive.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Autowired
+    private FloodDetectionService floodDetectionService;
+
+    @Autowired
+    private DetectionMetrics metrics;
+
+    @Autowired
+    private RequestStatistics requestStatistics;
+
+    private Scheduler scheduler;
+    private Semaphore admissions;
+    private int slots;
+
+    @PostConstruct
+    void init() {
+        scheduler = Schedulers.newBoundedElastic(threads, queueCapacity, "flood-reactive");
+        slots = threads + queueCapacity;
+        admissions = new Semaphore(slots);
+        metrics.gauge("detection.reactive.admitted", "Reactive detections running or waiting for a worker",
+                admissions, semaphore -> slots - semaphore.availablePermits());
+        logger.info("Reactive detection: {} workers, {} queued detections", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    public Mono<FloodDetectionResponse> detectFlood(FloodDetectionRequest request) {
+        return Mono.defer(() -> {
+            if (!admissions.tryAcquire()) {
+                requestStatistics.recordShed();
+                return Mono.error(new DetectionOverloadedException(
+                        "Too many detections in progress, retry later"));
+            }
+            // Released on success, error and cancellation alike
+            return Mono.fromCallable(() -> floodDetectionService.detectFlood(request))
+                    .subscribeOn(scheduler)
+                    .doFinally(signal -> admissions.release());
+        });
+    }
+
+    public int getAvailableSlots() {
+        return admissions.availablePermits();
+    }
+
+    int getSlots() {
+        return slots;
+    }
+}
@@ -0,0 +1,226 @@
+package com.incois.flooddetection.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends images to an external inference server (see RemoteInferenceClient).
+// While the server fails or misses its deadlines, a circuit breaker stops
+// calling it and images are scored by the built-in heuristic instead, so
+// detections keep working, at the heuristic's accuracy, until it recovers.
+@Service
+@ConditionalOnProperty(name = "app.model.backend", havingValue = "remote")
+class RemoteFloodModel implements FloodModelBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteFloodModel.class);
+
+    @Value("${app.model.remote.url:}")
+    private String url;
+
+    @Value("${app.model.remote.token:}")
+    private String token;
+
+    // Reported by the health endpoint
+    @Value("${app.model.remote.name:prithivMLmods/flood-image-detection}")
+    private String modelName;
+
+    // Longest side of the JPEG sent; the model sees 224-512 pixels anyway
+    @Value("${app.model.remote.image-size:512}")
+    private int imageSize;
+
+    @Value("${app.model.remote.max-connections:64}")
+    private int maxConnections;
+
+    // Calls waiting for a pooled connection
+    @Value("${app.model.remote.max-pending:256}")
+    private int maxPending;
+
+    @Value("${app.model.remote.http2:true}")
+    private boolean http2;
+
+    // Deadline for a call, hedge included
+    @Value("${app.model.remote.deadline-ms:2000}")
+    private long deadlineMs;
+
+    @Value("${app.model.remote.hedging.enabled:true}")
+    private boolean hedging;
+
+    // Hedge delay until enough calls have been timed for a p95
+    @Value("${app.model.remote.hedging.initial-delay-ms:300}")
+    private long initialHedgeDelayMs;
+
+    @Value("${app.model.remote.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.model.remote.breaker.open-ms:30000}")
+    private long openMs;
+
+    private final HeuristicFloodModel fallback = new HeuristicFloodModel();
+    private final LongAdder fallbacks = new LongAdder();
+    private RemoteInferenceClient client;
+    private CircuitBreaker breaker;
+
+    @PostConstruct
+    void init() {
+        if (url.isEmpty()) {
+            throw new IllegalStateException("app.model.backend=remote needs app.model.remote.url");
+        }
+        client = new RemoteInferenceClient(url, token, maxConnections, maxPending, http2, deadlineMs, hedging,
+                initialHedgeDelayMs);
+        breaker = new CircuitBreaker(failureThreshold, openMs);
+        logger.info("Remote inference at {}: {} connections, {} ms deadline, hedging {}", url, maxConnections,
+                deadlineMs, hedging ? "on" : "off");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        client.shutdown();
+    }
+
+    @Override
+    public String name() {
+        return modelName;
+    }
+
+    @Override
+    public Map<String, Double> predict(ImagePlanes planes, ImageAnalysisResult analysis) throws Exception {
+        if (!breaker.allowRequest()) {
+            return fallback(planes, analysis);
+        }
+        // Every call the breaker let through must settle it, however it ends:
+        // an unsettled HALF_OPEN trial would refuse all later calls. Only the
+        // server's answer (or its absence) counts as success or failure.
+        boolean settled = false;
+        try {
+            byte[] jpeg;
+            try {
+                jpeg = encode(planes.pixels);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not encode the image for remote inference, using the heuristic: {}",
+                        e.toString());
+                return fallback(planes, analysis);
+            }
+
+            Map<String, Double> prediction;
+            try {
+                prediction = client.classify(jpeg);
+            } catch (RuntimeException e) {
+                if (isInterruption(e)) {
+                    // The image stage was cancelled: not the server's fault, and
+                    // nobody is waiting for a heuristic score
+                    Thread.currentThread().interrupt();
+                    InterruptedException interrupted = new InterruptedException("Remote inference interrupted");
+                    interrupted.initCause(e);
+                    throw interrupted;
+                }
+                breaker.onFailure();
+                settled = true;
+                logger.warn("Remote inference failed, using the heuristic: {}", e.toString());
+                return fallback(planes, analysis);
+            }
+            breaker.onSuccess();
+            settled = true;
+            return prediction;
+        } finally {
+            if (!settled) {
+                breaker.onAbandoned();
+            }
+        }
+    }
+
+    // Reactor's block() reports an interrupt as a RuntimeException wrapping it
+    private static boolean isInterruption(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Double> fallback(ImagePlanes planes, ImageAnalysisResult analysis) {
+        fallbacks.increment();
+        return new FallbackPrediction(fallback.name(), fallback.predict(planes, analysis));
+    }
+
+    @Override
+    public Map<String, Object> details() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("url", url);
+        details.put("breaker", breaker.state().name().toLowerCase());
+        details.put("breakerOpened", breaker.timesOpened());
+        details.put("calls", client.calls());
+        details.put("hedges", client.hedges());
+        details.put("hedgeWins", client.hedgeWins());
+        details.put("p95Millis", client.p95Millis());
+        details.put("fallbacks", fallbacks.sum());
+        return details;
+    }
+
+    // Area-averages the pixels down to imageSize on the longer side and
+    // encodes them as a JPEG
+    private byte[] encode(PixelBuffer pixels) throws IOException {
+        double scale = Math.min(1.0, (double) imageSize / Math.max(pixels.width, pixels.height));
+        int width = Math.max(1, (int) Math.round(pixels.width * scale));
+        int height = Math.max(1, (int) Math.round(pixels.height * scale));
+        int[] rgb = new int[width * height];
+        for (int oy = 0; oy < height; oy++) {
+            int yStart = (int) ((long) oy * pixels.height / height);
+            int yEnd = Math.max(yStart + 1, (int) ((long) (oy + 1) * pixels.height / height));
+            for (int ox = 0; ox < width; ox++) {
+                int xStart = (int) ((long) ox * pixels.width / width);
+                int xEnd = Math.max(xStart + 1, (int) ((long) (ox + 1) * pixels.width / width));
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+                for (int y = yStart; y < yEnd; y++) {
+                    int row = y * pixels.width;
+                    for (int x = xStart; x < xEnd; x++) {
+                        int pixel = pixels.argb[row + x];
+                        red += (pixel >> 16) & 0xFF;
+                        green += (pixel >> 8) & 0xFF;
+                        blue += pixel & 0xFF;
+                    }
+                }
+                int count = (yEnd - yStart) * (xEnd - xStart);
+                rgb[oy * width + ox] = (red / count) << 16 | (green / count) << 8 | blue / count;
+            }
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, rgb, 0, width);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(width * height / 4);
+        // In memory: ImageIO.createImageOutputStream would cache through a temp file
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.9f);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
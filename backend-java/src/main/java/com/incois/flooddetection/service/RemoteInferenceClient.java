@@ -0,0 +1,166 @@
+package com.incois.flooddetection.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Calls an external server speaking the Hugging Face image classification
+// protocol: the encoded image is POSTed as the request body and the answer is
+// [{"label": "Flooded Scene", "score": 0.93}, ...].
+//
+// Connections come from a bounded pool and are reused, over HTTP/2 when the
+// server offers it. Every call has a deadline. With hedging on, a call still
+// unanswered after the recent p95 latency is sent a second time and whichever
+// answer comes first wins, the other request being cancelled; slow outliers
+// then cost about p95 instead of their full latency, for roughly 5% extra calls.
+class RemoteInferenceClient {
+
+    // Latencies kept for the p95 estimate, and how often it is recomputed
+    private static final int LATENCY_WINDOW = 256;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final ConnectionProvider connections;
+    private final WebClient webClient;
+    private final Duration deadline;
+    private final boolean hedging;
+    private final long initialHedgeDelayNanos;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private final AtomicLong recorded = new AtomicLong();
+    private volatile long p95Nanos;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    RemoteInferenceClient(String url, String token, int maxConnections, int maxPendingAcquires, boolean http2,
+            long deadlineMillis, boolean hedging, long initialHedgeDelayMillis) {
+        this.deadline = Duration.ofMillis(deadlineMillis);
+        this.hedging = hedging;
+        this.initialHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(initialHedgeDelayMillis);
+
+        connections = ConnectionProvider.builder("flood-inference")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingAcquires)
+                .pendingAcquireTimeout(deadline)
+                .maxIdleTime(Duration.ofSeconds(30))
+                // Active, idle and pending-acquire gauges under reactor.netty.connection.provider
+                .metrics(true)
+                .build();
+        // h2 is negotiated over TLS; cleartext servers are offered h2c
+        HttpProtocol http2Protocol = url.startsWith("https:") ? HttpProtocol.H2 : HttpProtocol.H2C;
+        HttpClient httpClient = HttpClient.create(connections)
+                .protocol(http2 ? new HttpProtocol[] { http2Protocol, HttpProtocol.HTTP11 }
+                        : new HttpProtocol[] { HttpProtocol.HTTP11 })
+                .responseTimeout(deadline);
+
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        if (token != null && !token.isEmpty()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        webClient = builder.build();
+    }
+
+    void shutdown() {
+        connections.dispose();
+    }
+
+    // Blocks the calling thread (an image worker, never an event loop)
+    Map<String, Double> classify(byte[] jpeg) {
+        calls.increment();
+        Mono<Map<String, Double>> call = attempt(jpeg, false);
+        if (hedging) {
+            Mono<Map<String, Double>> hedge = Mono.delay(Duration.ofNanos(hedgeDelayNanos()))
+                    .then(Mono.defer(() -> {
+                        hedges.increment();
+                        return attempt(jpeg, true);
+                    }));
+            call = Mono.firstWithValue(call, hedge);
+        }
+        return call.timeout(deadline).block();
+    }
+
+    private Mono<Map<String, Double>> attempt(byte[] jpeg, boolean hedged) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.post()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .bodyValue(jpeg)
+                    .retrieve()
+                    .bodyToMono(LabelScore[].class)
+                    .map(RemoteInferenceClient::toPrediction)
+                    .doOnSuccess(prediction -> {
+                        record(System.nanoTime() - start);
+                        if (hedged) {
+                            hedgeWins.increment();
+                        }
+                    });
+        });
+    }
+
+    private static Map<String, Double> toPrediction(LabelScore[] scores) {
+        Map<String, Double> prediction = new HashMap<>();
+        for (LabelScore score : scores) {
+            prediction.put(score.label, Math.round(score.score * 1000.0) / 1000.0);
+        }
+        if (!prediction.containsKey("Flooded Scene")) {
+            throw new IllegalStateException("Inference server returned no 'Flooded Scene' score");
+        }
+        return prediction;
+    }
+
+    // The configured delay until enough calls have been seen for a p95
+    private long hedgeDelayNanos() {
+        long p95 = p95Nanos;
+        return p95 > 0 ? p95 : initialHedgeDelayNanos;
+    }
+
+    // Racy by design: an occasionally lost or torn sample only nudges the estimate
+    private void record(long nanos) {
+        long count = recorded.incrementAndGet();
+        latencies[(int) ((count - 1) % LATENCY_WINDOW)] = nanos;
+        if (count >= RECOMPUTE_EVERY && count % RECOMPUTE_EVERY == 0) {
+            int size = (int) Math.min(count, LATENCY_WINDOW);
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            p95Nanos = sorted[(int) Math.ceil(size * 0.95) - 1];
+        }
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    long hedges() {
+        return hedges.sum();
+    }
+
+    long hedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    double p95Millis() {
+        return p95Nanos / 1e6;
+    }
+
+    // One element of the server's answer
+    static class LabelScore {
+        public String label;
+        public double score;
+    }
+}
@@ -0,0 +1,284 @@
+package com.incois.flooddetection.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rolling detection statistics over the last 1, 5 and 15 minutes, served at
+// /api/stats. Request threads only touch an HdrHistogram Recorder and a few
+// LongAdders, both free of locks; a ticker thread closes a 10 second slot at
+// a time into a ring of slots and rebuilds the windows from it, so reading
+// the statistics is a volatile read of the last snapshot.
+@Service
+public class RequestStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestStatistics.class);
+
+    private static final int SLOT_SECONDS = 10;
+    private static final int[] WINDOW_MINUTES = { 1, 5, 15 };
+    private static final int SLOTS = 15 * 60 / SLOT_SECONDS;
+
+    // 0.1 ms to 10 min at two significant digits: 1% precision in about 16 KB
+    // per slot, 1.5 MB for the whole ring
+    private static final long LOWEST_MICROS = 100;
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    enum Outcome { SUCCESS, ERROR, SHED }
+
+    private final Recorder latency = new Recorder(LOWEST_MICROS, HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder images = new LongAdder();
+    // Megapixels in thousandths, so they add up in a LongAdder
+    private final LongAdder milliMegapixels = new LongAdder();
+
+    // Ticker thread only
+    private final Slot[] ring = new Slot[SLOTS];
+    private int slotCount;
+    private int next;
+    private final Histogram[] windowLatency = new Histogram[WINDOW_MINUTES.length];
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < windowLatency.length; i++) {
+            windowLatency[i] = new Histogram(LOWEST_MICROS, HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flood-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, SLOT_SECONDS, SLOT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    // One detection that reached the service. Shed detections do not count
+    // towards latency: they fail in microseconds and would hide the slow ones.
+    void record(long nanos, Outcome outcome, double megapixels) {
+        requests.increment();
+        if (outcome != Outcome.SUCCESS) {
+            errors.increment();
+        }
+        if (outcome == Outcome.SHED) {
+            shed.increment();
+        } else {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            latency.recordValue(Math.max(LOWEST_MICROS, Math.min(HIGHEST_MICROS, micros)));
+        }
+        if (megapixels > 0) {
+            images.increment();
+            milliMegapixels.add(Math.round(megapixels * 1000));
+        }
+    }
+
+    // A detection turned away before it reached the service (batch queue or
+    // reactive admission full)
+    void recordShed() {
+        record(0, Outcome.SHED, 0);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    private void tick() {
+        try {
+            // The slot about to be overwritten hands its histogram back for reuse
+            Slot evicted = ring[next];
+            Histogram histogram = evicted != null
+                    ? latency.getIntervalHistogram(evicted.latency)
+                    : latency.getIntervalHistogram();
+            ring[next] = new Slot(histogram, requests.sumThenReset(), errors.sumThenReset(), shed.sumThenReset(),
+                    images.sumThenReset(), milliMegapixels.sumThenReset());
+            next = (next + 1) % SLOTS;
+            slotCount = Math.min(SLOTS, slotCount + 1);
+
+            List<Window> windows = new ArrayList<>(WINDOW_MINUTES.length);
+            for (int w = 0; w < WINDOW_MINUTES.length; w++) {
+                windows.add(window(WINDOW_MINUTES[w], windowLatency[w]));
+            }
+            snapshot = new Snapshot(windows);
+        } catch (RuntimeException e) {
+            // A failed tick must not cancel the schedule
+            logger.warn("Could not roll request statistics", e);
+        }
+    }
+
+    // Sums the newest slots covering the window; shorter after a fresh start
+    private Window window(int minutes, Histogram merged) {
+        int slots = Math.min(slotCount, minutes * 60 / SLOT_SECONDS);
+        merged.reset();
+        long windowRequests = 0;
+        long windowErrors = 0;
+        long windowShed = 0;
+        long windowImages = 0;
+        long windowMilliMegapixels = 0;
+        for (int i = 1; i <= slots; i++) {
+            Slot slot = ring[(next - i + SLOTS) % SLOTS];
+            merged.add(slot.latency);
+            windowRequests += slot.requests;
+            windowErrors += slot.errors;
+            windowShed += slot.shed;
+            windowImages += slot.images;
+            windowMilliMegapixels += slot.milliMegapixels;
+        }
+        return new Window(minutes, slots * SLOT_SECONDS, windowRequests, windowErrors, windowShed, merged,
+                windowImages == 0 ? 0.0 : windowMilliMegapixels / 1000.0 / windowImages);
+    }
+
+    private static class Slot {
+        final Histogram latency;
+        final long requests;
+        final long errors;
+        final long shed;
+        final long images;
+        final long milliMegapixels;
+
+        Slot(Histogram latency, long requests, long errors, long shed, long images, long milliMegapixels) {
+            this.latency = latency;
+            this.requests = requests;
+            this.errors = errors;
+            this.shed = shed;
+            this.images = images;
+            this.milliMegapixels = milliMegapixels;
+        }
+    }
+
+    public static class Snapshot {
+        private final List<Window> windows;
+
+        Snapshot(List<Window> windows) {
+            this.windows = windows;
+        }
+
+        // How often the windows move on
+        public int getSlotSeconds() {
+            return SLOT_SECONDS;
+        }
+
+        public List<Window> getWindows() {
+            return windows;
+        }
+
+        // The window of the given length, or null before the first slot closed
+        public Window window(int minutes) {
+            for (Window window : windows) {
+                if (window.minutes == minutes) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static class Window {
+        private final int minutes;
+        private final int coveredSeconds;
+        private final long requests;
+        private final long errors;
+        private final long shed;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double p999Millis;
+        private final double maxMillis;
+        private final double meanMillis;
+        private final double averageMegapixels;
+
+        Window(int minutes, int coveredSeconds, long requests, long errors, long shed, Histogram latency,
+                double averageMegapixels) {
+            this.minutes = minutes;
+            this.coveredSeconds = coveredSeconds;
+            this.requests = requests;
+            this.errors = errors;
+            this.shed = shed;
+            boolean empty = latency.getTotalCount() == 0;
+            this.p50Millis = empty ? 0.0 : latency.getValueAtPercentile(50) / 1000.0;
+            this.p90Millis = empty ? 0.0 : latency.getValueAtPercentile(90) / 1000.0;
+            this.p99Millis = empty ? 0.0 : latency.getValueAtPercentile(99) / 1000.0;
+            this.p999Millis = empty ? 0.0 : latency.getValueAtPercentile(99.9) / 1000.0;
+            this.maxMillis = empty ? 0.0 : latency.getMaxValue() / 1000.0;
+            this.meanMillis = empty ? 0.0 : latency.getMean() / 1000.0;
+            this.averageMegapixels = averageMegapixels;
+        }
+
+        public int getMinutes() {
+            return minutes;
+        }
+
+        // Less than the window length until the service has run that long
+        public int getCoveredSeconds() {
+            return coveredSeconds;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public double getRequestsPerSecond() {
+            return coveredSeconds == 0 ? 0.0 : (double) requests / coveredSeconds;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getErrorRate() {
+            return requests == 0 ? 0.0 : (double) errors / requests;
+        }
+
+        // Requests turned away with 503, also counted as errors
+        public long getShed() {
+            return shed;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getP999Millis() {
+            return p999Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getAverageMegapixels() {
+            return averageMegapixels;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.incois.flooddetection.service;
+
+// Sampling stride of every feature grid for one image. Each grid keeps its
+// original stride on small images; on larger ones the stride widens so no grid
+// takes more than the configured sample budget, which keeps per-image cost
+// roughly constant instead of growing with the megapixel count.
+class SamplingPlan {
+
+    enum Grid {
+        COLOR("color", 10),
+        REFLECTION("reflection", 5),
+        COLOR_DISTRIBUTION("color_distribution", 5),
+        EDGE("edge", 5),
+        CONTRAST("contrast", 3),
+        TEXTURE("texture", 3),
+        SATURATION("saturation", 4),
+        HORIZONTAL_LINES("horizontal_lines", 3),
+        VERTICAL_GRADIENT("vertical_gradient", 5),
+        DEPTH("depth", 4),
+        WAVE("wave", 4),
+        RIPPLE("ripple", 6);
+
+        final String key;
+        final int baseStride;
+
+        Grid(String key, int baseStride) {
+            this.key = key;
+            this.baseStride = baseStride;
+        }
+    }
+
+    // Original strides, used when no budget applies
+    static final SamplingPlan FULL = new SamplingPlan(0);
+
+    private final int[] strides = new int[Grid.values().length];
+
+    private SamplingPlan(int minimumStride) {
+        for (Grid grid : Grid.values()) {
+            strides[grid.ordinal()] = Math.max(grid.baseStride, minimumStride);
+        }
+    }
+
+    // A square grid with stride s takes about width * height / s^2 samples
+    static SamplingPlan forImage(int width, int height, long sampleBudget) {
+        if (sampleBudget <= 0) {
+            return FULL;
+        }
+        double area = (double) width * height;
+        return new SamplingPlan((int) Math.ceil(Math.sqrt(area / sampleBudget)));
+    }
+
+    int stride(Grid grid) {
+        return strides[grid.ordinal()];
+    }
+}
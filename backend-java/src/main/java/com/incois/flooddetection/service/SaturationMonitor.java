@@ -0,0 +1,143 @@
+package com.incois.flooddetection.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// How close the node is to its limits, reported in /api/health so a load
+// balancer can steer traffic away before requests start failing. Every value
+// is read on demand from the pools and RequestStatistics, nothing is kept.
+@Service
+public class SaturationMonitor {
+
+    @Autowired
+    private FloodDetectionService floodDetectionService;
+
+    @Autowired
+    private BatchDetectionService batchDetectionService;
+
+    @Autowired
+    private ReactiveDetectionService reactiveDetectionService;
+
+    @Autowired
+    private FloodModelService floodModelService;
+
+    @Autowired
+    private RequestStatistics requestStatistics;
+
+    // A queue this full (as a fraction of its capacity) marks the node saturated
+    @Value("${app.health.saturation.queue-threshold:0.8}")
+    private double queueThreshold;
+
+    // This many requests shed in the last minute mark it saturated too; a
+    // single 503 during a burst does not (0 ignores shedding)
+    @Value("${app.health.saturation.shed-threshold:10}")
+    private long shedThreshold;
+
+    public Saturation saturation() {
+        List<QueueLoad> queues = new ArrayList<>();
+        queues.add(executorLoad("image", floodDetectionService.imageExecutor()));
+        queues.add(executorLoad("batch", batchDetectionService.executor()));
+        // Reactive admissions cover running detections as well as waiting ones
+        int slots = reactiveDetectionService.getSlots();
+        queues.add(new QueueLoad("reactive", slots - reactiveDetectionService.getAvailableSlots(), slots));
+        MicroBatcher batcher = floodModelService.batcher();
+        if (batcher != null) {
+            queues.add(new QueueLoad("inference", batcher.queued(), batcher.queueCapacity()));
+        }
+
+        // Sustained shedding means clients keep seeing 503s even if the queues
+        // have drained for the moment
+        RequestStatistics.Window lastMinute = requestStatistics.snapshot().window(1);
+        long shed = lastMinute != null ? lastMinute.getShed() : 0;
+        boolean saturated = shedThreshold > 0 && shed >= shedThreshold;
+        for (QueueLoad queue : queues) {
+            saturated |= queue.getUtilisation() >= queueThreshold;
+        }
+        return new Saturation(saturated, floodDetectionService.activeDetections(), queues, shed,
+                lastMinute != null ? lastMinute.getErrorRate() : 0.0,
+                lastMinute != null ? lastMinute.getP99Millis() : 0.0);
+    }
+
+    // Tasks waiting for a thread against the queue capacity; the threads
+    // themselves are busy whenever anything waits
+    private static QueueLoad executorLoad(String name, ThreadPoolExecutor executor) {
+        int queued = executor.getQueue().size();
+        return new QueueLoad(name, queued, queued + executor.getQueue().remainingCapacity());
+    }
+
+    public static class Saturation {
+        private final boolean saturated;
+        private final int inFlight;
+        private final List<QueueLoad> queues;
+        private final long shedLastMinute;
+        private final double errorRateLastMinute;
+        private final double p99MillisLastMinute;
+
+        Saturation(boolean saturated, int inFlight, List<QueueLoad> queues, long shedLastMinute,
+                double errorRateLastMinute, double p99MillisLastMinute) {
+            this.saturated = saturated;
+            this.inFlight = inFlight;
+            this.queues = queues;
+            this.shedLastMinute = shedLastMinute;
+            this.errorRateLastMinute = errorRateLastMinute;
+            this.p99MillisLastMinute = p99MillisLastMinute;
+        }
+
+        public boolean isSaturated() {
+            return saturated;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public List<QueueLoad> getQueues() {
+            return queues;
+        }
+
+        public long getShedLastMinute() {
+            return shedLastMinute;
+        }
+
+        public double getErrorRateLastMinute() {
+            return errorRateLastMinute;
+        }
+
+        public double getP99MillisLastMinute() {
+            return p99MillisLastMinute;
+        }
+    }
+
+    public static class QueueLoad {
+        private final String name;
+        private final int queued;
+        private final int capacity;
+
+        QueueLoad(String name, int queued, int capacity) {
+            this.name = name;
+            this.queued = queued;
+            this.capacity = capacity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public double getUtilisation() {
+            return capacity == 0 ? 0.0 : (double) queued / capacity;
+        }
+    }
+}
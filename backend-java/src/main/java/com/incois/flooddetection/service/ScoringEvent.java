@@ -0,0 +1,36 @@
+package com.incois.flooddetection.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Map;
+
+// JFR event for one prediction, including any wait for a batch or a session
+@Name("com.incois.flooddetection.Scoring")
+@Label("Scoring")
+@Category({ "Flood Detection" })
+@Description("Flood prediction by the configured model backend")
+@Enabled(false)
+@StackTrace(false)
+class ScoringEvent extends Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Flooded Score")
+    double floodedScore;
+
+    void finish(String model, Map<String, Double> prediction) {
+        end();
+        if (shouldCommit()) {
+            this.model = model;
+            this.floodedScore = prediction.getOrDefault("Flooded Scene", 0.0);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.incois.flooddetection.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Collapses concurrent calls for the same key into one: the first caller
+// starts the computation, callers arriving while it runs share its future and
+// see its outcome, result or exception alike. Nothing is remembered once the
+// computation completes.
+//
+// Every caller waits on its own thread with its own deadline. One giving up
+// leaves the others waiting; the computation is cancelled only once all of
+// them have given up.
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    // Joins the call in flight for key, or starts one with start when there is
+    // none. A null key always starts a call of its own. The waiter returned
+    // must be awaited.
+    Waiter join(K key, Callable<CompletableFuture<V>> start) throws Exception {
+        while (true) {
+            Call call = new Call(key);
+            Call running = key != null ? calls.putIfAbsent(key, call) : null;
+            if (running == null) {
+                call.start(start);
+                return new Waiter(call, true);
+            }
+            if (running.join()) {
+                coalesced.incrementAndGet();
+                return new Waiter(running, false);
+            }
+            // Every waiter of that call gave up and cancelled it
+            calls.remove(key, running);
+        }
+    }
+
+    long coalescedCalls() {
+        return coalesced.get();
+    }
+
+    class Waiter {
+        private final Call call;
+        private final boolean leader;
+
+        private Waiter(Call call, boolean leader) {
+            this.call = call;
+            this.leader = leader;
+        }
+
+        // Whether this caller started the computation
+        boolean isLeader() {
+            return leader;
+        }
+
+        // Waits up to timeoutMillis (0 waits indefinitely) and rethrows what the
+        // computation threw, so every waiter fails the same way
+        V await(long timeoutMillis) throws Exception {
+            boolean done = false;
+            try {
+                V value = timeoutMillis > 0
+                        ? call.result.get(timeoutMillis, TimeUnit.MILLISECONDS)
+                        : call.result.get();
+                done = true;
+                return value;
+            } catch (ExecutionException e) {
+                done = true;
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw (Exception) cause;
+            } finally {
+                if (!done) {
+                    call.leave();
+                }
+            }
+        }
+    }
+
+    private class Call {
+        private final K key;
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        private CompletableFuture<V> computation;
+        // Callers still waiting; guarded by this
+        private int waiters = 1;
+
+        Call(K key) {
+            this.key = key;
+        }
+
+        void start(Callable<CompletableFuture<V>> start) throws Exception {
+            CompletableFuture<V> started;
+            try {
+                started = start.call();
+            } catch (Exception | Error e) {
+                // Followers that already joined fail the same way
+                forget();
+                result.completeExceptionally(e);
+                throw e;
+            }
+            synchronized (this) {
+                computation = started;
+            }
+            started.whenComplete((value, error) -> {
+                forget();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+
+        synchronized boolean join() {
+            if (waiters == 0) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        // The last caller to give up cancels the computation
+        void leave() {
+            CompletableFuture<V> abandoned;
+            synchronized (this) {
+                if (--waiters > 0) {
+                    return;
+                }
+                abandoned = computation;
+            }
+            forget();
+            if (abandoned != null) {
+                abandoned.cancel(true);
+            }
+        }
+
+        private void forget() {
+            if (key != null) {
+                calls.remove(key, this);
+            }
+        }
+    }
+}
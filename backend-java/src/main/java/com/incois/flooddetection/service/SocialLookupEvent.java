@@ -0,0 +1,45 @@
+package com.incois.flooddetection.service;
+
+import com.incois.flooddetection.service.SocialMediaAnalysisService.SocialMediaAnalysisResult;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event for a social media lookup, on the I/O thread that ran it
+@Name("com.incois.flooddetection.SocialLookup")
+@Label("Social Media Lookup")
+@Category({ "Flood Detection" })
+@Description("Social media sentiment lookup for the request's coordinates")
+@Enabled(false)
+@StackTrace(false)
+class SocialLookupEvent extends Event {
+
+    @Label("Latitude")
+    double latitude;
+
+    @Label("Longitude")
+    double longitude;
+
+    @Label("Posts")
+    int postCount;
+
+    @Label("Sentiment Score")
+    double sentimentScore;
+
+    void finish(double latitude, double longitude, SocialMediaAnalysisResult result) {
+        end();
+        if (shouldCommit()) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            if (result != null) {
+                this.postCount = result.getPostCount();
+                this.sentimentScore = result.getSentimentScore();
+            }
+            commit();
+        }
+    }
+}
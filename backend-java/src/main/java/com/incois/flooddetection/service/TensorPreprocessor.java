@@ -0,0 +1,84 @@
+package com.incois.flooddetection.service;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+// Resizes packed pixels to the model's square input by area averaging and
+// writes them normalised and channel-planar (NCHW: all red, then all green,
+// then all blue) straight into the input tensor's buffer. Every output cell
+// averages the source pixels it covers, so downscaling does not alias; on
+// upscaling each cell takes its nearest pixel. One instance per session, its
+// arrays reused from call to call.
+class TensorPreprocessor {
+
+    private final int size;
+    // (value / 255 - mean) / std folded into value * scale + offset
+    private final float[] scale = new float[3];
+    private final float[] offset = new float[3];
+
+    private final int[] columnStart;
+    private final int[] columnEnd;
+    // Per output column of the current output row: red, green, blue totals
+    private final int[] sums;
+
+    TensorPreprocessor(int size, float[] mean, float[] std) {
+        this.size = size;
+        for (int c = 0; c < 3; c++) {
+            scale[c] = 1f / (255f * std[c]);
+            offset[c] = -mean[c] / std[c];
+        }
+        columnStart = new int[size];
+        columnEnd = new int[size];
+        sums = new int[3 * size];
+    }
+
+    int capacity() {
+        return 3 * size * size;
+    }
+
+    // Writes one image at float index base of target (base = n * capacity()
+    // for the n-th image of a batch)
+    void write(PixelBuffer pixels, FloatBuffer target, int base) {
+        int width = pixels.width;
+        int height = pixels.height;
+        int[] argb = pixels.argb;
+        int plane = size * size;
+
+        for (int ox = 0; ox < size; ox++) {
+            columnStart[ox] = (int) ((long) ox * width / size);
+            columnEnd[ox] = Math.max(columnStart[ox] + 1, (int) ((long) (ox + 1) * width / size));
+        }
+
+        for (int oy = 0; oy < size; oy++) {
+            int yStart = (int) ((long) oy * height / size);
+            int yEnd = Math.max(yStart + 1, (int) ((long) (oy + 1) * height / size));
+            Arrays.fill(sums, 0);
+            for (int y = yStart; y < yEnd; y++) {
+                int row = y * width;
+                for (int ox = 0; ox < size; ox++) {
+                    int red = 0;
+                    int green = 0;
+                    int blue = 0;
+                    for (int x = columnStart[ox]; x < columnEnd[ox]; x++) {
+                        int pixel = argb[row + x];
+                        red += (pixel >> 16) & 0xFF;
+                        green += (pixel >> 8) & 0xFF;
+                        blue += pixel & 0xFF;
+                    }
+                    sums[3 * ox] += red;
+                    sums[3 * ox + 1] += green;
+                    sums[3 * ox + 2] += blue;
+                }
+            }
+
+            int rows = yEnd - yStart;
+            int index = base + oy * size;
+            for (int ox = 0; ox < size; ox++, index++) {
+                float inverseCount = 1f / (rows * (columnEnd[ox] - columnStart[ox]));
+                target.put(index, sums[3 * ox] * inverseCount * scale[0] + offset[0]);
+                target.put(plane + index, sums[3 * ox + 1] * inverseCount * scale[1] + offset[1]);
+                target.put(2 * plane + index, sums[3 * ox + 2] * inverseCount * scale[2] + offset[2]);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.incois.flooddetection.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Fails the read as soon as more than the allowed number of bytes has arrived,
+// so streamed uploads of unknown length are refused without buffering them
+class UploadLimitInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long count;
+
+    UploadLimitInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        advance(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void advance(long n) throws ImageRejectedException {
+        count += n;
+        if (limit > 0 && count > limit) {
+            throw new ImageRejectedException(String.format("Image exceeds the %d byte upload limit", limit));
+        }
+    }
+}
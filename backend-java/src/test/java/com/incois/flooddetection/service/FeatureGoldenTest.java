@@ -0,0 +1,194 @@
+package com.incois.flooddetection.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Pins the fused feature pass to the output of the original per-feature
+// getRGB kernels on the sample images in src/test/resources/golden. The
+// colour features read the same pixels the same way and must match exactly,
+// and the luma features differ only by fixed-point rounding. The noisy and
+// textured samples keep the neighbour-difference features honest away from
+// clean synthetic edges.
+class FeatureGoldenTest {
+
+    private static final String GOLDEN = "/golden/";
+
+    private static final double EXACT = 1e-6;
+    private static final double LUMA_ROUNDING = 0.002;
+
+    private static final Map<String, Feature> FEATURES = new LinkedHashMap<>();
+
+    static {
+        feature("avg_brightness", EXACT, result -> result.avgBrightness);
+        feature("blue_ratio", EXACT, result -> result.blueRatio);
+        feature("water_like_ratio", EXACT, result -> result.waterLikeRatio);
+        feature("edge_density", LUMA_ROUNDING, result -> result.edgeDensity);
+        feature("texture_complexity", LUMA_ROUNDING, result -> result.textureComplexity);
+        feature("reflection_score", EXACT, result -> result.reflectionScore);
+        feature("color_distribution", EXACT, result -> result.colorDistribution);
+        feature("horizontal_line_density", EXACT, result -> result.horizontalLineDensity);
+        feature("vertical_gradient", LUMA_ROUNDING, result -> result.verticalGradient);
+        feature("saturation_level", EXACT, result -> result.saturationLevel);
+        feature("contrast_level", LUMA_ROUNDING, result -> result.contrastLevel);
+        feature("wave_pattern_score", LUMA_ROUNDING, result -> result.wavePatternScore);
+        feature("surface_ripple_score", LUMA_ROUNDING, result -> result.surfaceRippleScore);
+        feature("depth_perception_score", EXACT, result -> result.depthPerceptionScore);
+    }
+
+    // The score is rounded to three decimals by the model
+    private static final double SCORE_TOLERANCE = 0.005;
+
+    // Unconfigured: one band on the calling thread and the original strides
+    private final ImageFeatureExtractor extractor = new ImageFeatureExtractor();
+
+    @Test
+    void featuresMatchOriginalKernels() throws Exception {
+        List<Map<String, String>> rows = readGolden();
+        assertFalse(rows.isEmpty());
+        for (Map<String, String> row : rows) {
+            String image = row.get("image");
+            ImagePlanes planes = extractor.unpack(readSample(image));
+            ImageAnalysisResult result = extractor.analyse(planes);
+
+            for (Map.Entry<String, Feature> feature : FEATURES.entrySet()) {
+                double expected = Double.parseDouble(row.get(feature.getKey()));
+                assertEquals(expected, feature.getValue().value.applyAsDouble(result), feature.getValue().tolerance,
+                        image + ": " + feature.getKey());
+            }
+
+            double score = new HeuristicFloodModel().predict(planes, result).get("Flooded Scene");
+            assertEquals(Double.parseDouble(row.get("flooded_score")), score, SCORE_TOLERANCE,
+                    image + ": flooded_score");
+        }
+    }
+
+    // The packed ARGB reader must produce exactly what getRGB returns, on the
+    // fast paths and the getRGB fallback alike
+    @Test
+    void packedReaderMatchesGetRgb() throws Exception {
+        for (Map<String, String> row : readGolden()) {
+            String image = row.get("image");
+            BufferedImage decoded = readSample(image);
+            assertSameArgb(image + " as decoded", decoded);
+            for (int type : new int[] {
+                    BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE,
+                    BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+                    BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_USHORT_565_RGB,
+                    BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY }) {
+                assertSameArgb(image + " as type " + type, convert(decoded, type));
+            }
+            assertSameArgb(image + " as 4 bit palette", toFourBitPalette(decoded));
+        }
+    }
+
+    private static void assertSameArgb(String label, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] expected = image.getRGB(0, 0, width, height, null, 0, width);
+
+        PixelBuffer pixels = PixelBuffer.allocate(image);
+        // In two bands, as the parallel extractor reads them
+        pixels.unpackRows(image, 0, height / 2);
+        pixels.unpackRows(image, height / 2, height);
+        assertArrayEquals(expected, pixels.argb, label);
+    }
+
+    private static BufferedImage convert(BufferedImage source, int type) {
+        BufferedImage target = new BufferedImage(source.getWidth(), source.getHeight(), type);
+        Graphics2D graphics = target.createGraphics();
+        graphics.drawImage(source, 0, 0, null);
+        graphics.dispose();
+        return target;
+    }
+
+    // Packed sub-byte indices, the TYPE_BYTE_BINARY layout with 16 colours
+    private static BufferedImage toFourBitPalette(BufferedImage source) {
+        byte[] levels = new byte[16];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = (byte) (i * 17);
+        }
+        IndexColorModel colorModel = new IndexColorModel(4, 16, levels, levels, levels);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        WritableRaster raster = Raster.createWritableRaster(
+                new MultiPixelPackedSampleModel(DataBuffer.TYPE_BYTE, width, height, 4), null);
+        BufferedImage target = new BufferedImage(colorModel, raster, false, null);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, LumaPlane.luminance(source.getRGB(x, y)) >> 4);
+            }
+        }
+        return target;
+    }
+
+    private static BufferedImage readSample(String name) throws IOException {
+        try (InputStream in = FeatureGoldenTest.class.getResourceAsStream(GOLDEN + name)) {
+            assertNotNull(in, name);
+            return ImageIO.read(in);
+        }
+    }
+
+    // One map per image, keyed by the CSV header; lines starting with # are comments
+    private static List<Map<String, String>> readGolden() throws IOException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        try (InputStream in = FeatureGoldenTest.class.getResourceAsStream(GOLDEN + "features.csv")) {
+            assertNotNull(in, "features.csv");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String[] header = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] cells = line.split(",");
+                if (header == null) {
+                    header = cells;
+                    continue;
+                }
+                Map<String, String> row = new LinkedHashMap<>();
+                for (int i = 0; i < header.length; i++) {
+                    row.put(header[i], cells[i]);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void feature(String name, double tolerance, ToDoubleFunction<ImageAnalysisResult> value) {
+        FEATURES.put(name, new Feature(tolerance, value));
+    }
+
+    private static class Feature {
+        final double tolerance;
+        final ToDoubleFunction<ImageAnalysisResult> value;
+
+        Feature(double tolerance, ToDoubleFunction<ImageAnalysisResult> value) {
+            this.tolerance = tolerance;
+            this.value = value;
+        }
+    }
+}